@@ -0,0 +1,32 @@
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+['a', 'b', 'c', 'd', 'e'].each { assert new File(basedir, "target/${it}.txt").text == it }
+
+def lines = new File(basedir, 'build.log').readLines()
+
+// the messages of each nested task are logged together
+def echoes = lines.findAll { it =~ /\[echo\] [abc]-(start|end)/ }.collect { it.substring(it.lastIndexOf(' ') + 1) }
+assert echoes.size() == 6
+['a', 'b', 'c'].each { assert echoes.indexOf("${it}-end".toString()) == echoes.indexOf("${it}-start".toString()) + 1 }
+
+assert lines.any { it.contains('nested task failed') }
+
+// the Maven parallel task does not replace the Ant one
+assert !lines.any { it.contains('Trying to override old definition') }
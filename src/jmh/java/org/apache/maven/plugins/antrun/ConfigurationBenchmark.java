@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks turning the Ant target of the plugin configuration into a configured Ant project.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigurationBenchmark {
+
+    @Param({"10", "1000"})
+    int tasks;
+
+    private PlexusConfiguration target;
+
+    private File buildFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        target = Fixtures.target(tasks);
+        buildFile = new File(Fixtures.BASEDIR, "target/antrun/build-" + tasks + ".xml");
+        // noinspection ResultOfMethodCallIgnored
+        buildFile.getParentFile().mkdirs();
+        new AntrunXmlPlexusConfigurationWriter().write(target, buildFile, "", AntRunMojo.DEFAULT_ANT_TARGET_NAME);
+    }
+
+    @Benchmark
+    public String writeBuildFile() throws IOException {
+        return new AntrunXmlPlexusConfigurationWriter()
+                .write(target, buildFile, "", AntRunMojo.DEFAULT_ANT_TARGET_NAME);
+    }
+
+    @Benchmark
+    public Project parseBuildFile() {
+        Project antProject = new Project();
+        antProject.init();
+        ProjectHelper.configureProject(antProject, buildFile);
+        return antProject;
+    }
+
+    @Benchmark
+    public Project configureFromPlexusConfiguration() {
+        Project antProject = new Project();
+        new AntrunPlexusConfigurationProjectBuilder(buildFile, "")
+                .configureProject(antProject, target, AntRunMojo.DEFAULT_ANT_TARGET_NAME);
+        antProject.init();
+        return antProject;
+    }
+}
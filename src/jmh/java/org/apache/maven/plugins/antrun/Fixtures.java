@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
+
+/**
+ * Synthetic inputs of the benchmarks. Everything is generated from a size, so that the results of different commits
+ * are comparable.
+ */
+final class Fixtures {
+
+    /**
+     * The directory of the synthetic local repository and project. The files are never read.
+     */
+    static final File BASEDIR = new File(System.getProperty("java.io.tmpdir"), "antrun-benchmarks");
+
+    private Fixtures() {
+        // no instances
+    }
+
+    /**
+     * @param tasks The number of tasks of the target.
+     * @return A target with the usual mix of tasks, attributes and nested elements.
+     */
+    static PlexusConfiguration target(int tasks) {
+        PlexusConfiguration target = new XmlPlexusConfiguration("target");
+        target.setAttribute("name", AntRunMojo.DEFAULT_ANT_TARGET_NAME);
+        for (int i = 0; i < tasks; i++) {
+            switch (i % 3) {
+                case 0:
+                    PlexusConfiguration echo = new XmlPlexusConfiguration("echo");
+                    echo.setAttribute("message", "Message " + i + " for ${project.artifactId}");
+                    target.addChild(echo);
+                    break;
+                case 1:
+                    PlexusConfiguration copy = new XmlPlexusConfiguration("copy");
+                    copy.setAttribute("todir", "${project.build.directory}/copy-" + i);
+                    PlexusConfiguration fileset = new XmlPlexusConfiguration("fileset");
+                    fileset.setAttribute("dir", "src/main/resources");
+                    fileset.setAttribute("includes", "**/*.properties");
+                    copy.addChild(fileset);
+                    target.addChild(copy);
+                    break;
+                default:
+                    PlexusConfiguration property = new XmlPlexusConfiguration("property");
+                    property.setAttribute("name", "generated." + i);
+                    property.setAttribute("value", "value " + i);
+                    target.addChild(property);
+                    break;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @param properties The number of properties of the project.
+     * @param dependencies The number of dependencies of the project.
+     * @return A project with resolved dependencies.
+     */
+    static MavenProject project(int properties, int dependencies) {
+        Model model = new Model();
+        model.setGroupId("org.apache.maven.plugins.antrun");
+        model.setArtifactId("benchmark");
+        model.setVersion("1.0");
+        model.setPackaging("jar");
+        model.setName("Benchmark");
+        Build build = new Build();
+        build.setDirectory(new File(BASEDIR, "target").getPath());
+        build.setOutputDirectory(new File(BASEDIR, "target/classes").getPath());
+        build.setTestOutputDirectory(new File(BASEDIR, "target/test-classes").getPath());
+        build.setSourceDirectory(new File(BASEDIR, "src/main/java").getPath());
+        build.setTestSourceDirectory(new File(BASEDIR, "src/test/java").getPath());
+        model.setBuild(build);
+        for (int i = 0; i < properties; i++) {
+            model.addProperty("benchmark.property." + i, "value-" + i);
+        }
+
+        MavenProject project = new MavenProject(model);
+        project.setFile(new File(BASEDIR, "pom.xml"));
+
+        ArtifactRepository repository = localRepository();
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (int i = 0; i < dependencies; i++) {
+            Artifact artifact = new DefaultArtifact(
+                    "org.example.group" + (i % 10),
+                    "artifact-" + i,
+                    "1." + i + ".0",
+                    i % 4 == 0 ? Artifact.SCOPE_TEST : Artifact.SCOPE_COMPILE,
+                    "jar",
+                    null,
+                    new DefaultArtifactHandler("jar"));
+            artifact.setFile(new File(repository.getBasedir(), repository.pathOf(artifact)));
+            artifacts.add(artifact);
+        }
+        project.setArtifacts(artifacts);
+        return project;
+    }
+
+    static ArtifactRepository localRepository() {
+        return new MavenArtifactRepository(
+                "local",
+                new File(BASEDIR, "repository").toURI().toString(),
+                new DefaultRepositoryLayout(),
+                new ArtifactRepositoryPolicy(),
+                new ArtifactRepositoryPolicy());
+    }
+
+    /**
+     * @param project The project of the execution.
+     * @return A mojo configured as Maven would, without a repository session, and only logging warnings and errors.
+     */
+    @SuppressWarnings("deprecation")
+    static AntRunMojo mojo(MavenProject project) {
+        AntRunMojo mojo = new AntRunMojo(null);
+        MavenSession session =
+                new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        set(mojo, "mavenProject", project);
+        set(mojo, "session", session);
+        set(mojo, "localRepository", localRepository());
+        set(mojo, "propertyPrefix", "");
+        set(mojo, "versionsPropertyName", "maven.project.dependencies.versions");
+        set(mojo, "exportAntProperties", true);
+        mojo.setLog(new SystemStreamLog() {
+            @Override
+            public void debug(CharSequence content) {
+                // the default log writes debug messages even when debug is disabled
+            }
+        });
+        return mojo;
+    }
+
+    private static void set(AntRunMojo mojo, String name, Object value) {
+        try {
+            Field field = AntRunMojo.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(mojo, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to set " + name, e);
+        }
+    }
+}
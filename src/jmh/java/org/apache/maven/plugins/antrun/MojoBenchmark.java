@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the preparation of the Ant project done by the mojo for every execution, and the export of the Ant
+ * properties. Each invocation starts from a new Ant project, created outside of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MojoBenchmark {
+
+    @Param({"100", "5000"})
+    int properties;
+
+    @Param({"10", "1000"})
+    int dependencies;
+
+    private MavenProject mavenProject;
+
+    private Properties mavenProperties;
+
+    private AntRunMojo mojo;
+
+    private Project antProject;
+
+    /**
+     * The Ant project of {@link #copyPropertiesToMaven()}, holding as many Ant properties as the Maven project.
+     */
+    private Project antProjectWithProperties;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        mavenProject = Fixtures.project(properties, dependencies);
+        mavenProperties = mavenProject.getProperties();
+        mojo = Fixtures.mojo(mavenProject);
+        antProjectWithProperties = new Project();
+        antProjectWithProperties.init();
+        for (int i = 0; i < properties; i++) {
+            antProjectWithProperties.setProperty("ant.property." + i, "value-" + i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        antProject = new Project();
+        antProject.init();
+        // the exported properties would otherwise clash with the ones of the previous invocation
+        mavenProject.getModel().setProperties((Properties) mavenProperties.clone());
+    }
+
+    @Benchmark
+    public Project initMavenTasks() {
+        mojo.initMavenTasks(antProject);
+        return antProject;
+    }
+
+    @Benchmark
+    public Project copyPropertiesToAnt() {
+        mojo.copyProperties(mavenProject, antProject);
+        return antProject;
+    }
+
+    @Benchmark
+    public MavenProject copyPropertiesToMaven() {
+        mojo.copyProperties(antProjectWithProperties, mavenProject);
+        return mavenProject;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.ant.tasks.DependencyFilesetsTask;
+import org.apache.maven.ant.tasks.support.VersionMapper;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the Maven Ant tasks working on the dependencies of the project.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TasksBenchmark {
+
+    @Param({"10", "1000"})
+    int dependencies;
+
+    private MavenProject mavenProject;
+
+    private ArtifactRepository localRepository;
+
+    private String versions;
+
+    private List<String> fileNames;
+
+    private Project antProject;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        mavenProject = Fixtures.project(0, dependencies);
+        localRepository = Fixtures.localRepository();
+
+        StringBuilder sb = new StringBuilder();
+        fileNames = new ArrayList<>();
+        for (Artifact artifact : mavenProject.getArtifacts()) {
+            sb.append(artifact.getVersion()).append(File.pathSeparator);
+            fileNames.add(artifact.getFile().getPath());
+        }
+        versions = sb.toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        antProject = new Project();
+        antProject.init();
+        antProject.addReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID, mavenProject);
+        antProject.addReference(AntRunMojo.MAVEN_REFID_PREFIX + "local.repository", localRepository);
+    }
+
+    @Benchmark
+    public Project dependencyFilesets() {
+        DependencyFilesetsTask task = new DependencyFilesetsTask();
+        task.setProject(antProject);
+        task.execute();
+        return antProject;
+    }
+
+    @Benchmark
+    public void versionMapper(Blackhole blackhole) {
+        VersionMapper mapper = new VersionMapper();
+        mapper.setFrom(versions);
+        mapper.setTo("flatten");
+        for (String fileName : fileNames) {
+            blackhole.consume(mapper.mapFileName(fileName));
+        }
+    }
+
+    @Benchmark
+    public void versionMapperFromProject(Blackhole blackhole) {
+        VersionMapper mapper = new VersionMapper();
+        mapper.setProject(antProject);
+        mapper.setTo("flatten");
+        for (String fileName : fileNames) {
+            blackhole.consume(mapper.mapFileName(fileName));
+        }
+    }
+}
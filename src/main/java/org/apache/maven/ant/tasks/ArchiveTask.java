@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.ant.tasks.support.ParallelDeflater;
+import org.apache.maven.ant.tasks.support.ParallelGzipOutputStream;
+import org.apache.maven.ant.tasks.support.ParallelZipWriter;
+import org.apache.maven.plugins.antrun.taskconfig.ArchiveConfiguration;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.ArchiveFileSet;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.TarFileSet;
+import org.apache.tools.ant.types.ZipFileSet;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+
+/**
+ * Ant task writing a zip, jar, tar or tar.gz archive from filesets, zipfilesets and tarfilesets, with the entries
+ * compressed on several threads by a {@link ParallelDeflater}. The entries are sorted by name, with the manifest of a
+ * jar first, so that the archive is the same whatever the order the files are found in, and with any number of
+ * threads.
+ * <p>
+ * The parent directories of the entries are added too, as Ant's <code>zip</code> and <code>tar</code> tasks do. When
+ * several filesets have an entry of the same name, the first one is kept.
+ */
+public class ArchiveTask extends Task {
+
+    private static final String ZIP = "zip";
+
+    private static final String TAR = "tar";
+
+    private static final String TAR_GZ = "tar.gz";
+
+    private static final String MANIFEST_DIR = "META-INF/";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    /**
+     * The order of the entries: the manifest first, as <code>java.util.jar.JarInputStream</code> expects, then by
+     * name.
+     */
+    private static final Comparator<String> ENTRY_ORDER =
+            Comparator.comparingInt(ArchiveTask::rank).thenComparing(Comparator.naturalOrder());
+
+    private ArchiveConfiguration configuration = new ArchiveConfiguration();
+
+    private final List<FileSet> fileSets = new ArrayList<>();
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute() {
+        File destfile = getDestfile();
+        if (destfile == null) {
+            throw new BuildException("destfile is required", getLocation());
+        }
+        String format = getArchiveFormat(destfile);
+        if (getLevel() < -1 || getLevel() > 9) {
+            throw new BuildException("level must be between -1 and 9: " + getLevel(), getLocation());
+        }
+        if (getThreads() < 0) {
+            throw new BuildException("threads must not be negative: " + getThreads(), getLocation());
+        }
+        int threads = getThreads() > 0 ? getThreads() : Runtime.getRuntime().availableProcessors();
+        Collection<Entry> entries = getEntries();
+
+        log("Building " + format + ": " + destfile.getAbsolutePath());
+        File parent = destfile.getAbsoluteFile().getParentFile();
+        // the archive is only replaced once it is complete
+        File tmp = new File(parent, destfile.getName() + ".tmp");
+        ExecutorService executor = TAR.equals(format) ? null : newExecutor(threads);
+        try {
+            Files.createDirectories(parent.toPath());
+            if (ZIP.equals(format)) {
+                writeZip(entries, new ParallelZipWriter(tmp, executor, threads, getLevel()));
+            } else {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024);
+                if (TAR_GZ.equals(format)) {
+                    out = new ParallelGzipOutputStream(out, executor, threads, getLevel());
+                }
+                writeTar(entries, out);
+            }
+            move(tmp, destfile);
+        } catch (IOException e) {
+            tmp.delete();
+            throw new BuildException("Failed to write " + destfile + ": " + e.getMessage(), e, getLocation());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return The entries of the archive, in order.
+     */
+    private Collection<Entry> getEntries() {
+        Map<String, Entry> entries = new TreeMap<>(ENTRY_ORDER);
+        for (FileSet fileSet : fileSets) {
+            String prefix = "";
+            String fullpath = "";
+            int fileMode = ArchiveFileSet.DEFAULT_FILE_MODE;
+            int dirMode = ArchiveFileSet.DEFAULT_DIR_MODE;
+            if (fileSet instanceof ArchiveFileSet) {
+                ArchiveFileSet archiveFileSet = (ArchiveFileSet) fileSet;
+                if (archiveFileSet.getSrc(getProject()) != null) {
+                    throw new BuildException(
+                            "The entries of other archives cannot be added: " + archiveFileSet.getSrc(getProject()),
+                            getLocation());
+                }
+                prefix = normalize(archiveFileSet.getPrefix(getProject()));
+                if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+                    prefix += "/";
+                }
+                fullpath = normalize(archiveFileSet.getFullpath(getProject()));
+                fileMode = archiveFileSet.getFileMode(getProject());
+                dirMode = archiveFileSet.getDirMode(getProject());
+            }
+
+            DirectoryScanner scanner = fileSet.getDirectoryScanner(getProject());
+            File basedir = scanner.getBasedir();
+            String[] files = scanner.getIncludedFiles();
+            if (!fullpath.isEmpty() && files.length != 1) {
+                throw new BuildException("fullpath requires a fileset of exactly one file", getLocation());
+            }
+            for (String path : files) {
+                File file = new File(basedir, path);
+                String name = fullpath.isEmpty() ? prefix + normalize(path) : fullpath;
+                add(entries, new Entry(name, file, file.lastModified(), fileMode, fileSet, false), dirMode);
+            }
+            if (fullpath.isEmpty()) {
+                for (String path : scanner.getIncludedDirectories()) {
+                    if (!path.isEmpty()) {
+                        File dir = new File(basedir, path);
+                        String name = prefix + normalize(path) + "/";
+                        add(entries, new Entry(name, null, dir.lastModified(), dirMode, fileSet, false), dirMode);
+                    }
+                }
+            }
+        }
+        return entries.values();
+    }
+
+    /**
+     * Adds an entry and its parent directories. The directories which are only parents of other entries take the
+     * latest modification time of the entries in them, which does not depend on the order the files are found in.
+     */
+    private void add(Map<String, Entry> entries, Entry entry, int dirMode) {
+        Entry existing = entries.get(entry.name);
+        if (existing != null && !(existing.implicit && entry.file == null)) {
+            if (entry.file != null) {
+                log("Skipping " + entry.file + ", as the archive already has " + entry.name, Project.MSG_WARN);
+            }
+            return;
+        }
+        entries.put(entry.name, entry);
+        int i = entry.name.lastIndexOf('/', entry.name.length() - 2);
+        for (; i > 0; i = entry.name.lastIndexOf('/', i - 1)) {
+            String name = entry.name.substring(0, i + 1);
+            Entry parent = entries.get(name);
+            if (parent == null) {
+                entries.put(name, new Entry(name, null, entry.time, dirMode, null, true));
+            } else if (parent.implicit) {
+                parent.time = Math.max(parent.time, entry.time);
+            }
+        }
+    }
+
+    private static void writeZip(Collection<Entry> entries, ParallelZipWriter zip) throws IOException {
+        try (ParallelZipWriter writer = zip) {
+            for (Entry entry : entries) {
+                if (entry.file == null) {
+                    writer.addDirectory(entry.name, entry.time, entry.mode);
+                } else {
+                    writer.addFile(entry.name, entry.file, entry.time, entry.mode);
+                }
+            }
+        }
+    }
+
+    private static void writeTar(Collection<Entry> entries, OutputStream out) throws IOException {
+        try (TarOutputStream tar = new TarOutputStream(out, "UTF-8")) {
+            tar.setLongFileMode(TarOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarOutputStream.BIGNUMBER_POSIX);
+            for (Entry entry : entries) {
+                TarEntry tarEntry = new TarEntry(entry.name);
+                tarEntry.setModTime(entry.time);
+                tarEntry.setMode(entry.mode);
+                if (entry.fileSet instanceof TarFileSet) {
+                    TarFileSet tarFileSet = (TarFileSet) entry.fileSet;
+                    if (tarFileSet.hasUserNameBeenSet()) {
+                        tarEntry.setUserName(tarFileSet.getUserName());
+                    }
+                    if (tarFileSet.hasGroupBeenSet()) {
+                        tarEntry.setGroupName(tarFileSet.getGroup());
+                    }
+                    if (tarFileSet.hasUserIdBeenSet()) {
+                        tarEntry.setUserId(tarFileSet.getUid());
+                    }
+                    if (tarFileSet.hasGroupIdBeenSet()) {
+                        tarEntry.setGroupId(tarFileSet.getGid());
+                    }
+                }
+                if (entry.file != null) {
+                    tarEntry.setSize(entry.file.length());
+                }
+                tar.putNextEntry(tarEntry);
+                if (entry.file != null) {
+                    Files.copy(entry.file.toPath(), tar);
+                }
+                tar.closeEntry();
+            }
+        }
+    }
+
+    private static void move(File tmp, File destfile) throws IOException {
+        try {
+            Files.move(
+                    tmp.toPath(),
+                    destfile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), destfile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger thread = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "antrun-archive-" + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private String getArchiveFormat(File destfile) {
+        String format = getFormat();
+        if (format == null) {
+            String name = destfile.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return TAR_GZ;
+            }
+            return name.endsWith(".tar") ? TAR : ZIP;
+        }
+        if (!ZIP.equals(format) && !TAR.equals(format) && !TAR_GZ.equals(format)) {
+            throw new BuildException(
+                    "format must be " + ZIP + ", " + TAR + " or " + TAR_GZ + ": " + format, getLocation());
+        }
+        return format;
+    }
+
+    /**
+     * @return The path with <code>/</code> as separator, and no leading separator.
+     */
+    private static String normalize(String path) {
+        String normalized = path.replace(File.separatorChar, '/').replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+
+    private static int rank(String name) {
+        if (MANIFEST_DIR.equals(name)) {
+            return 0;
+        }
+        return MANIFEST.equals(name) ? 1 : 2;
+    }
+
+    /**
+     * @param fileSet The files to add.
+     */
+    public void addFileset(FileSet fileSet) {
+        fileSets.add(fileSet);
+    }
+
+    /**
+     * @param fileSet The files to add, with a prefix, a full path or modes.
+     */
+    public void addZipfileset(ZipFileSet fileSet) {
+        fileSets.add(fileSet);
+    }
+
+    /**
+     * @param fileSet The files to add, with a prefix, a full path, modes or owners.
+     */
+    public void addTarfileset(TarFileSet fileSet) {
+        fileSets.add(fileSet);
+    }
+
+    /**
+     * @return The archive to write.
+     */
+    public File getDestfile() {
+        return configuration.getDestfile();
+    }
+
+    /**
+     * @param destfile The archive to write.
+     */
+    public void setDestfile(File destfile) {
+        configuration.setDestfile(destfile);
+    }
+
+    /**
+     * @return The format of the archive: <code>zip</code>, <code>tar</code> or <code>tar.gz</code>, or null to
+     *         choose it from the extension of the archive.
+     */
+    public String getFormat() {
+        return configuration.getFormat();
+    }
+
+    /**
+     * @param format The format of the archive: <code>zip</code>, <code>tar</code> or <code>tar.gz</code>, or null to
+     *            choose it from the extension of the archive.
+     */
+    public void setFormat(String format) {
+        configuration.setFormat(format);
+    }
+
+    /**
+     * @return The compression level, from 0 to 9, or -1 for the default one.
+     */
+    public int getLevel() {
+        return configuration.getLevel();
+    }
+
+    /**
+     * @param level The compression level, from 0 to 9, or -1 for the default one.
+     */
+    public void setLevel(int level) {
+        configuration.setLevel(level);
+    }
+
+    /**
+     * @return The number of threads compressing the entries, 0 for the number of processors.
+     */
+    public int getThreads() {
+        return configuration.getThreads();
+    }
+
+    /**
+     * @param threads The number of threads compressing the entries, 0 for the number of processors.
+     */
+    public void setThreads(int threads) {
+        configuration.setThreads(threads);
+    }
+
+    private static final class Entry {
+        private final String name;
+
+        /**
+         * The file, or null for a directory.
+         */
+        private final File file;
+
+        private long time;
+
+        private final int mode;
+
+        private final FileSet fileSet;
+
+        /**
+         * Whether the entry is a directory only added as the parent of other entries.
+         */
+        private final boolean implicit;
+
+        Entry(String name, File file, long time, int mode, FileSet fileSet, boolean implicit) {
+            this.name = name;
+            this.file = file;
+            this.time = time;
+            this.mode = mode;
+            this.fileSet = fileSet;
+            this.implicit = implicit;
+        }
+    }
+}
@@ -19,15 +19,23 @@
 package org.apache.maven.ant.tasks;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.maven.ant.tasks.support.ChecksumWriter;
 import org.apache.maven.plugins.antrun.AntRunMojo;
 import org.apache.maven.plugins.antrun.MavenAntRunProject;
 import org.apache.maven.plugins.antrun.taskconfig.AttachArtifactConfiguration;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.util.FileNameMapper;
+import org.apache.tools.ant.util.RegexpPatternMapper;
 import org.codehaus.plexus.util.FileUtils;
 
 /**
@@ -48,26 +56,28 @@ public class AttachArtifactTask extends Task {
 
     private AttachArtifactConfiguration configuration = new AttachArtifactConfiguration();
 
+    /**
+     * The files to attach, in addition to {@link AttachArtifactConfiguration#getFile()}.
+     */
+    private final List<FileSet> fileSets = new ArrayList<>();
+
     @Override
     public void execute() {
-        File file = configuration.getFile();
-        if (file == null) {
+        List<File> files = getFiles();
+        if (files.isEmpty() && fileSets.isEmpty()) {
             throw new BuildException("File is a required parameter.");
         }
 
-        if (!file.exists()) {
-            throw new BuildException("File does not exist: " + file);
+        // the files of a batch are checked together, before any of them is attached
+        File missing = files.parallelStream().filter(f -> !f.exists()).findFirst().orElse(null);
+        if (missing != null) {
+            throw new BuildException("File does not exist: " + missing);
         }
 
         if (this.getProject().getReference(mavenProjectRefId) == null) {
             throw new BuildException("Maven project reference not found: " + mavenProjectRefId);
         }
 
-        String type = configuration.getType();
-        if (type == null) {
-            type = FileUtils.getExtension(file.getName());
-        }
-
         MavenProject mavenProject =
                 ((MavenAntRunProject) this.getProject().getReference(mavenProjectRefId)).getMavenProject();
 
@@ -75,10 +85,109 @@ public class AttachArtifactTask extends Task {
             throw new BuildException("Maven project helper reference not found: " + mavenProjectHelperRefId);
         }
 
-        String classifier = configuration.getClassifier();
-        log("Attaching " + file + " as an attached artifact", Project.MSG_VERBOSE);
         MavenProjectHelper projectHelper = getProject().getReference(mavenProjectHelperRefId);
-        projectHelper.attachArtifact(mavenProject, type, classifier, file);
+        List<String> algorithms = getChecksumAlgorithms();
+        ChecksumWriter.checkAlgorithms(algorithms);
+        FileNameMapper classifierMapper = createMapper(configuration.getClassifier());
+        FileNameMapper typeMapper = createMapper(configuration.getType());
+        // all the names are mapped before any artifact is attached
+        String[] classifiers = new String[files.size()];
+        String[] types = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            classifiers[i] = configuration.getClassifier();
+            types[i] = configuration.getType();
+            if (configuration.getPattern() != null) {
+                classifiers[i] = map(classifierMapper, file);
+                types[i] = map(typeMapper, file);
+            }
+            if (types[i] == null) {
+                types[i] = FileUtils.getExtension(file.getName());
+            }
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            log("Attaching " + files.get(i) + " as an attached artifact", Project.MSG_VERBOSE);
+            projectHelper.attachArtifact(mavenProject, types[i], classifiers[i], files.get(i));
+        }
+
+        if (!algorithms.isEmpty()) {
+            writeChecksums(files, algorithms);
+        }
+    }
+
+    private List<String> getChecksumAlgorithms() {
+        List<String> algorithms = new ArrayList<>();
+        if (configuration.getChecksums() != null) {
+            for (String algorithm : configuration.getChecksums().split(",")) {
+                if (!algorithm.trim().isEmpty()) {
+                    algorithms.add(algorithm.trim());
+                }
+            }
+        }
+        return algorithms;
+    }
+
+    /**
+     * Computes the checksums in the background when the plugin provides a {@link ChecksumWriter}, so that the files are
+     * read while the build goes on.
+     */
+    private void writeChecksums(List<File> files, List<String> algorithms) {
+        ChecksumWriter checksumWriter = getProject().getReference(AntRunMojo.DEFAULT_MAVEN_CHECKSUMS_REFID);
+        for (File file : files) {
+            if (checksumWriter != null) {
+                checksumWriter.submit(file, algorithms);
+            } else {
+                try {
+                    ChecksumWriter.write(file, algorithms);
+                } catch (IOException e) {
+                    throw new BuildException("Unable to write checksum of " + file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the file and the files of the filesets
+     */
+    private List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        if (configuration.getFile() != null) {
+            files.add(configuration.getFile());
+        }
+        for (FileSet fileSet : fileSets) {
+            DirectoryScanner scanner = fileSet.getDirectoryScanner(getProject());
+            for (String name : scanner.getIncludedFiles()) {
+                files.add(new File(scanner.getBasedir(), name));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param to a classifier or a type, which may refer to the groups of the pattern
+     * @return a mapper from the file name to the given value, or <code>null</code> without pattern or value
+     */
+    private FileNameMapper createMapper(String to) {
+        if (configuration.getPattern() == null) {
+            return null;
+        }
+        RegexpPatternMapper mapper = new RegexpPatternMapper();
+        mapper.setFrom(configuration.getPattern());
+        // without a replacement, the mapper still rejects the files which do not match
+        mapper.setTo(to == null ? "" : to);
+        return mapper;
+    }
+
+    private String map(FileNameMapper mapper, File file) {
+        if (mapper == null) {
+            return null;
+        }
+        String[] mapped = mapper.mapFileName(file.getName());
+        if (mapped == null) {
+            throw new BuildException("File does not match the pattern " + configuration.getPattern() + ": " + file);
+        }
+        return mapped[0].isEmpty() ? null : mapped[0];
     }
 
     /**
@@ -120,4 +229,27 @@ public class AttachArtifactTask extends Task {
     public void setType(String type) {
         this.configuration.setType(type);
     }
+
+    public String getPattern() {
+        return this.configuration.getPattern();
+    }
+
+    public void setPattern(String pattern) {
+        this.configuration.setPattern(pattern);
+    }
+
+    public String getChecksums() {
+        return this.configuration.getChecksums();
+    }
+
+    public void setChecksums(String checksums) {
+        this.configuration.setChecksums(checksums);
+    }
+
+    /**
+     * @param fileSet files to attach
+     */
+    public void addFileset(FileSet fileSet) {
+        fileSets.add(fileSet);
+    }
 }
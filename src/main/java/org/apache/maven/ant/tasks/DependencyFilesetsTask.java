@@ -19,9 +19,13 @@
 package org.apache.maven.ant.tasks;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.maven.ant.tasks.support.ArtifactFileSet;
 import org.apache.maven.ant.tasks.support.SpecificScopesArtifactFilter;
 import org.apache.maven.ant.tasks.support.TypesArtifactFilter;
 import org.apache.maven.artifact.Artifact;
@@ -60,27 +64,24 @@ public class DependencyFilesetsTask extends Task {
         // Add filesets for depenedency artifacts
         Set<Artifact> depArtifacts = filterArtifacts(mavenProject.getArtifacts());
 
-        FileSet dependenciesFileSet = new FileSet();
-        dependenciesFileSet.setProject(getProject());
+        // the filesets list the artifact files directly, so that the local repository is never scanned
         ArtifactRepository localRepository = getProject().getReference("maven.local.repository");
-        dependenciesFileSet.setDir(new File(localRepository.getBasedir()));
-
-        if (depArtifacts.isEmpty()) {
-            // For performance reasons in case of huge local repo, tell Ant to include a single thing, otherwise the
-            // whole directory is scanned (even though ** is excluded).
-            dependenciesFileSet.createInclude().setName(".");
-            dependenciesFileSet.createExclude().setName("**");
-        }
+        FileSet dependenciesFileSet = new ArtifactFileSet(new File(localRepository.getBasedir()), () -> {
+            List<String> paths = new ArrayList<>(depArtifacts.size());
+            for (Artifact artifact : depArtifacts) {
+                paths.add(localRepository.pathOf(artifact));
+            }
+            return paths;
+        });
+        dependenciesFileSet.setProject(getProject());
 
         for (Artifact artifact : depArtifacts) {
-            String relativeArtifactPath = localRepository.pathOf(artifact);
-            dependenciesFileSet.createInclude().setName(relativeArtifactPath);
-
             String fileSetName = getPrefix() + artifact.getDependencyConflictId();
 
-            FileSet singleArtifactFileSet = new FileSet();
+            File file = artifact.getFile();
+            FileSet singleArtifactFileSet =
+                    new ArtifactFileSet(file.getParentFile(), () -> Collections.singletonList(file.getName()));
             singleArtifactFileSet.setProject(getProject());
-            singleArtifactFileSet.setFile(artifact.getFile());
             getProject().addReference(fileSetName, singleArtifactFileSet);
         }
 
@@ -169,12 +170,22 @@ public class DependencyFilesetsTask extends Task {
      * @return The set of filtered artifacts.
      */
     public Set<Artifact> filterArtifacts(Set<Artifact> artifacts) {
-        String scopes = getScopes();
+        return filterArtifacts(artifacts, getScopes(), getTypes());
+    }
+
+    /**
+     * Filter a set of artifacts using scopes and types.
+     *
+     * @param artifacts {@link Artifact} set.
+     * @param scopes Comma separated list of artifact scopes to include, or null for all.
+     * @param types Comma separated list of artifact types to include, or null for all.
+     * @return The set of filtered artifacts.
+     */
+    static Set<Artifact> filterArtifacts(Set<Artifact> artifacts, String scopes, String types) {
         if (scopes == null) {
             scopes = "";
         }
 
-        String types = getTypes();
         if (types == null) {
             types = "";
         }
@@ -185,10 +196,10 @@ public class DependencyFilesetsTask extends Task {
 
         AndArtifactFilter filter = new AndArtifactFilter();
         if (!"".equals(scopes)) {
-            filter.add(new SpecificScopesArtifactFilter(getScopes()));
+            filter.add(new SpecificScopesArtifactFilter(scopes));
         }
         if (!"".equals(types)) {
-            filter.add(new TypesArtifactFilter(getTypes()));
+            filter.add(new TypesArtifactFilter(types));
         }
 
         Set<Artifact> artifactsResult = new LinkedHashSet<>();
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.ant.tasks.support.ParallelFileCopier;
+import org.apache.maven.plugins.antrun.taskconfig.ParallelCopyConfiguration;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Copy;
+
+/**
+ * Ant task copying files like Ant's <code>copy</code> task, with the same filesets, mappers and attributes, but several
+ * files at the same time and with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * which lets the operating system copy the content without going through the JVM. A file is only copied when its
+ * target is missing or has another size or modification time, and the copies keep the modification time of their
+ * source. Files can also be staged as hard or symbolic links. The files are copied by a {@link ParallelFileCopier}.
+ * <p>
+ * When the content is changed while copied, with filters or encodings, the files are copied one at a time by the
+ * <code>copy</code> task, which then also decides which files to copy.
+ */
+public class ParallelCopyTask extends Copy {
+
+    private ParallelCopyConfiguration configuration = new ParallelCopyConfiguration();
+
+    /**
+     * Whether all the files are copied, as asked with the <code>overwrite</code> attribute.
+     */
+    private boolean overwrite;
+
+    /**
+     * Whether the files are copied by this task, rather than one at a time by the <code>copy</code> task.
+     */
+    private boolean parallel;
+
+    /**
+     * @return The maximum number of files copied at the same time, 0 for the number of processors.
+     */
+    public int getThreads() {
+        return configuration.getThreads();
+    }
+
+    /**
+     * @param threads The maximum number of files copied at the same time, 0 for the number of processors.
+     */
+    public void setThreads(int threads) {
+        configuration.setThreads(threads);
+    }
+
+    /**
+     * @return How the files are copied: <code>none</code> to copy their content, <code>hard</code> or
+     *         <code>symbolic</code> to create links.
+     */
+    public String getLink() {
+        return configuration.getLink();
+    }
+
+    /**
+     * @param link How the files are copied: <code>none</code> to copy their content, <code>hard</code> or
+     *            <code>symbolic</code> to create links, or copies when the links cannot be created.
+     */
+    public void setLink(String link) {
+        configuration.setLink(link);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+        super.setOverwrite(overwrite);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute() {
+        // checks the attributes
+        new ParallelFileCopier(getThreads(), getLink());
+
+        parallel = !filtering
+                && getFilterSets().isEmpty()
+                && getFilterChains().isEmpty()
+                && getEncoding() == null
+                && getOutputEncoding() == null;
+        // the size and the modification time of the targets tell which files to copy, not only their age
+        super.setOverwrite(overwrite || parallel);
+        super.execute();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean supportsNonFileResources() {
+        // the resources which are not files are copied by the copy task
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doFileOperations() {
+        if (!parallel) {
+            super.doFileOperations();
+            return;
+        }
+
+        List<File[]> copies = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : fileCopyMap.entrySet()) {
+            for (String to : entry.getValue()) {
+                if (entry.getKey().equals(to)) {
+                    log("Skipping self-copy of " + to, verbosity);
+                } else {
+                    copies.add(new File[] {new File(entry.getKey()), new File(to)});
+                }
+            }
+        }
+
+        if (!copies.isEmpty()) {
+            copyFiles(copies);
+        }
+        if (includeEmpty) {
+            createEmptyDirectories();
+        }
+    }
+
+    private void copyFiles(List<File[]> copies) {
+        ParallelFileCopier copier = new ParallelFileCopier(getThreads(), getLink());
+        List<String> failures;
+        try {
+            failures = copier.copy(copies, overwrite);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while copying the files", e, getLocation());
+        }
+        for (String failure : failures) {
+            if (failonerror) {
+                throw new BuildException(failure, getLocation());
+            }
+            log(failure, Project.MSG_ERR);
+        }
+
+        log("Copied " + copier.getCopied() + " file(s) and linked " + copier.getLinked() + " file(s) to "
+                + destDir.getAbsolutePath() + ", " + copier.getUnchanged() + " file(s) unchanged");
+    }
+
+    private void createEmptyDirectories() {
+        int created = 0;
+        for (String[] dirs : dirCopyMap.values()) {
+            for (String dir : dirs) {
+                File directory = new File(dir);
+                if (!directory.exists()) {
+                    if (directory.mkdirs() || directory.isDirectory()) {
+                        created++;
+                    } else {
+                        log("Unable to create directory " + directory, Project.MSG_ERR);
+                    }
+                }
+            }
+        }
+        if (created > 0) {
+            log("Created " + created + " empty director" + (created == 1 ? "y" : "ies") + " under "
+                    + destDir.getAbsolutePath());
+        }
+    }
+}
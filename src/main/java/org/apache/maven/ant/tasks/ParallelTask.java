@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.maven.plugins.antrun.taskconfig.ParallelConfiguration;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.TaskContainer;
+
+/**
+ * Ant task running its nested tasks at the same time, on virtual threads when the JVM supports them. Unlike Ant's
+ * <code>parallel</code> task, the first failure cancels the other nested tasks, and the messages of each nested task
+ * are logged in one block when it finishes.
+ */
+public class ParallelTask extends Task implements TaskContainer {
+
+    /**
+     * The refId of the listener buffering the messages of the nested tasks, installed in the Ant project while
+     * <code>parallel</code> tasks run.
+     */
+    private static final String BUFFERING_LISTENER_REFID = "maven.antrun.parallel.listener";
+
+    /**
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code>, or null before Java 21.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private final List<Task> tasks = new ArrayList<>();
+
+    private ParallelConfiguration configuration = new ParallelConfiguration();
+
+    @Override
+    public void addTask(Task task) {
+        tasks.add(task);
+    }
+
+    @Override
+    public void execute() {
+        int threads = configuration.getThreads();
+        if (threads < 0) {
+            throw new BuildException("threads must not be negative: " + threads);
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        BufferingListener listener = BufferingListener.install(getProject());
+        try {
+            runTasks(threads, listener, listener.getBlock(this));
+        } finally {
+            BufferingListener.uninstall(getProject(), listener);
+        }
+    }
+
+    private void runTasks(int threads, BufferingListener listener, Block parent) {
+        Semaphore permits = threads > 0 ? new Semaphore(threads) : null;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = createExecutor(threads > 0 ? Math.min(threads, tasks.size()) : tasks.size());
+        try {
+            for (Task task : tasks) {
+                futures.add(executor.submit(() -> {
+                    if (run(task, permits, failure, listener, parent)) {
+                        cancel(futures);
+                    }
+                }));
+            }
+            if (failure.get() != null) {
+                cancel(futures);
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log("Waiting for the nested tasks to finish", Project.MSG_VERBOSE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while running the nested tasks", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof BuildException) {
+            throw (BuildException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new BuildException(t);
+        }
+    }
+
+    /**
+     * @return true if the task failed, and is the first one to fail.
+     */
+    private static boolean run(
+            Task task,
+            Semaphore permits,
+            AtomicReference<Throwable> failure,
+            BufferingListener listener,
+            Block parent) {
+        if (failure.get() != null) {
+            return false;
+        }
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            // cancelled before it started
+            return false;
+        }
+
+        try {
+            if (failure.get() != null) {
+                return false;
+            }
+            Block block = listener.open(task, parent);
+            try {
+                task.perform();
+                return false;
+            } catch (Throwable t) {
+                return failure.compareAndSet(null, t);
+            } finally {
+                listener.close(block);
+            }
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private static void cancel(List<Future<?>> futures) {
+        synchronized (futures) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static ExecutorService createExecutor(int platformThreads) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // use platform threads
+            }
+        }
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "antrun-parallel-" + count.incrementAndGet());
+            thread.setContextClassLoader(contextClassLoader);
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(platformThreads, threadFactory);
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /* Fields delegated to ParallelConfiguration */
+
+    public int getThreads() {
+        return this.configuration.getThreads();
+    }
+
+    public void setThreads(int threads) {
+        this.configuration.setThreads(threads);
+    }
+
+    /**
+     * The messages of a nested task, including the tasks it runs and the threads they start.
+     */
+    private static final class Block {
+
+        /**
+         * The block of the enclosing nested task when the <code>parallel</code> task is nested in another one, or
+         * null.
+         */
+        private final Block parent;
+
+        private List<BuildEvent> events = new ArrayList<>();
+
+        Block(Block parent) {
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Forwards the build events to the listeners the project had when the first <code>parallel</code> task started,
+     * except the messages of the nested tasks, which are kept until the nested task has finished. A message belongs to
+     * the nested task which started the task logging it, whichever thread logs it; a message without a task belongs
+     * to the nested task running on the thread. The listeners added while the tasks run are called by the project
+     * directly, and see the messages as they are logged.
+     */
+    private static final class BufferingListener implements SubBuildListener {
+
+        private final List<BuildListener> delegates;
+
+        /**
+         * The block of each task started by a nested task.
+         */
+        private final Map<Task, Block> blocks = new ConcurrentHashMap<>();
+
+        /**
+         * The block of the nested task running on the thread.
+         */
+        private final ThreadLocal<Block> current = new ThreadLocal<>();
+
+        /**
+         * The number of <code>parallel</code> tasks running in the project.
+         */
+        private int users;
+
+        BufferingListener(List<BuildListener> delegates) {
+            this.delegates = new ArrayList<>(delegates);
+        }
+
+        /**
+         * @param project {@link Project}
+         * @return The listener of the project, installed in place of the listeners of the project by the first of the
+         *         <code>parallel</code> tasks running at the same time.
+         */
+        static BufferingListener install(Project project) {
+            synchronized (BufferingListener.class) {
+                Object reference = project.getReference(BUFFERING_LISTENER_REFID);
+                if (reference instanceof BufferingListener) {
+                    BufferingListener listener = (BufferingListener) reference;
+                    listener.users++;
+                    return listener;
+                }
+
+                List<BuildListener> listeners = project.getBuildListeners();
+                BufferingListener listener = new BufferingListener(listeners);
+                // add first, so that no message is lost while the listeners are replaced
+                project.addBuildListener(listener);
+                for (BuildListener delegate : listeners) {
+                    project.removeBuildListener(delegate);
+                }
+                project.addReference(BUFFERING_LISTENER_REFID, listener);
+                listener.users = 1;
+                return listener;
+            }
+        }
+
+        /**
+         * Restores the listeners of the project when the last of the <code>parallel</code> tasks has finished.
+         *
+         * @param project {@link Project}
+         * @param listener The listener returned by {@link #install(Project)}.
+         */
+        static void uninstall(Project project, BufferingListener listener) {
+            synchronized (BufferingListener.class) {
+                if (--listener.users > 0) {
+                    return;
+                }
+
+                // add first, so that no message is lost while the listeners are restored
+                for (BuildListener delegate : listener.delegates) {
+                    project.addBuildListener(delegate);
+                }
+                project.removeBuildListener(listener);
+                project.getReferences().remove(BUFFERING_LISTENER_REFID);
+            }
+        }
+
+        /**
+         * @param task A task.
+         * @return The block of the nested task which started the task, or null.
+         */
+        Block getBlock(Task task) {
+            Block block = task != null ? blocks.get(task) : null;
+            return block != null ? block : current.get();
+        }
+
+        /**
+         * Starts buffering the messages of a nested task, on the thread running it.
+         *
+         * @param task The nested task.
+         * @param parent The block of the <code>parallel</code> task, or null.
+         * @return The block of the nested task.
+         */
+        Block open(Task task, Block parent) {
+            Block block = new Block(parent);
+            current.set(block);
+            blocks.put(task, block);
+            return block;
+        }
+
+        /**
+         * Logs the messages of a nested task, in its parent block if it has one.
+         *
+         * @param block The block returned by {@link #open(Task, Block)}.
+         */
+        void close(Block block) {
+            current.remove();
+            blocks.values().removeIf(value -> value == block);
+            List<BuildEvent> events;
+            synchronized (block) {
+                events = block.events;
+                // the messages logged later by the threads of the task are not buffered anymore
+                block.events = null;
+            }
+            append(block.parent, events);
+        }
+
+        private void append(Block block, List<BuildEvent> events) {
+            if (block != null) {
+                synchronized (block) {
+                    if (block.events != null) {
+                        block.events.addAll(events);
+                        return;
+                    }
+                }
+                append(block.parent, events);
+                return;
+            }
+
+            // one block per task, even when several tasks finish at the same time
+            synchronized (this) {
+                for (BuildEvent event : events) {
+                    for (BuildListener delegate : delegates) {
+                        delegate.messageLogged(event);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            Task task = event.getTask();
+            Block block = getBlock(task);
+            if (block != null && task != null) {
+                // the threads started by the task log with it
+                blocks.putIfAbsent(task, block);
+            }
+            append(block, Collections.singletonList(event));
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                delegate.buildStarted(event);
+            }
+        }
+
+        @Override
+        public void buildFinished(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                delegate.buildFinished(event);
+            }
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                delegate.targetStarted(event);
+            }
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                delegate.targetFinished(event);
+            }
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+            Block block = current.get();
+            if (block != null) {
+                blocks.putIfAbsent(event.getTask(), block);
+            }
+            for (BuildListener delegate : delegates) {
+                delegate.taskStarted(event);
+            }
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                delegate.taskFinished(event);
+            }
+        }
+
+        @Override
+        public void subBuildStarted(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                if (delegate instanceof SubBuildListener) {
+                    ((SubBuildListener) delegate).subBuildStarted(event);
+                }
+            }
+        }
+
+        @Override
+        public void subBuildFinished(BuildEvent event) {
+            for (BuildListener delegate : delegates) {
+                if (delegate instanceof SubBuildListener) {
+                    ((SubBuildListener) delegate).subBuildFinished(event);
+                }
+            }
+        }
+    }
+}
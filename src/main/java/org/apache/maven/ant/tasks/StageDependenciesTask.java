@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.maven.ant.tasks.support.ParallelFileCopier;
+import org.apache.maven.ant.tasks.support.VersionMapper;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.plugins.antrun.taskconfig.StageDependenciesConfiguration;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * Ant task staging the dependencies of a Maven project in a directory, as <code>dependencyfilesets</code> followed by a
+ * <code>copy</code> with a <code>VersionMapper</code> would, optionally with links to the files of the local
+ * repository rather than copies. The files are staged by a {@link ParallelFileCopier}, so the copies or the links are
+ * made several at a time, and the ones which are already up to date are kept.
+ */
+public class StageDependenciesTask extends Task {
+
+    private StageDependenciesConfiguration configuration = new StageDependenciesConfiguration();
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute() {
+        File todir = getTodir();
+        if (todir == null) {
+            throw new BuildException("todir is required", getLocation());
+        }
+        MavenProject mavenProject = getProject().getReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID);
+        if (mavenProject == null) {
+            throw new BuildException(
+                    "Maven project reference not found: " + AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID, getLocation());
+        }
+        ParallelFileCopier copier = new ParallelFileCopier(getThreads(), getLink());
+
+        Map<File, File> staged = getStagedFiles(mavenProject, todir);
+        List<File[]> copies = new ArrayList<>(staged.size());
+        for (Map.Entry<File, File> entry : staged.entrySet()) {
+            copies.add(new File[] {entry.getValue(), entry.getKey()});
+        }
+        List<String> failures;
+        try {
+            failures = copier.copy(copies, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while staging the dependencies", e, getLocation());
+        }
+        if (!failures.isEmpty()) {
+            throw new BuildException(failures.get(0), getLocation());
+        }
+
+        // without any dependency, the directory may not exist
+        int deleted = isPrune() && todir.isDirectory() ? prune(todir, staged.keySet()) : 0;
+        log("Staged " + staged.size() + " dependencies in " + todir.getAbsolutePath() + ": " + copier.getLinked()
+                + " linked, " + copier.getCopied() + " copied, " + copier.getUnchanged() + " unchanged, " + deleted
+                + " deleted");
+    }
+
+    /**
+     * @return The files of the selected dependencies, by their path in the staging directory.
+     */
+    private Map<File, File> getStagedFiles(MavenProject mavenProject, File todir) {
+        ArtifactRepository localRepository =
+                getProject().getReference(AntRunMojo.MAVEN_REFID_PREFIX + "local.repository");
+        if (!isFlatten() && localRepository == null) {
+            throw new BuildException("Maven local repository reference not found", getLocation());
+        }
+        VersionMapper versionMapper = null;
+        if (isStripVersion()) {
+            versionMapper = new VersionMapper();
+            versionMapper.setProject(getProject());
+        }
+
+        Map<File, File> staged = new LinkedHashMap<>();
+        for (Artifact artifact :
+                DependencyFilesetsTask.filterArtifacts(mavenProject.getArtifacts(), getScopes(), getTypes())) {
+            File file = artifact.getFile();
+            if (file == null || !file.exists()) {
+                log("Skipping " + artifact.getId() + ", which is not resolved", Project.MSG_VERBOSE);
+                continue;
+            }
+            if (!file.isFile()) {
+                log("Skipping " + artifact.getId() + ", which is not packaged: " + file, Project.MSG_WARN);
+                continue;
+            }
+
+            String path = isFlatten() ? file.getName() : localRepository.pathOf(artifact);
+            if (versionMapper != null) {
+                path = versionMapper.mapFileName(path)[0];
+            }
+            File target = new File(todir, path);
+            File previous = staged.put(target, file);
+            if (previous != null) {
+                throw new BuildException(
+                        "Both " + previous + " and " + file + " would be staged as " + target, getLocation());
+            }
+        }
+        return staged;
+    }
+
+    /**
+     * Deletes the files of the staging directory which are not staged dependencies, and the directories left empty.
+     *
+     * @return The number of files deleted.
+     */
+    private int prune(File todir, Set<File> staged) {
+        Set<Path> kept = new HashSet<>();
+        for (File file : staged) {
+            kept.add(file.toPath().toAbsolutePath().normalize());
+        }
+        Path root = todir.toPath().toAbsolutePath().normalize();
+        int[] deleted = {0};
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // symbolic links are not followed, so the staged links are deleted rather than their targets
+                    if (!kept.contains(file)) {
+                        Files.delete(file);
+                        deleted[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    if (!dir.equals(root)) {
+                        try (Stream<Path> entries = Files.list(dir)) {
+                            if (!entries.findAny().isPresent()) {
+                                Files.delete(dir);
+                            }
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new BuildException("Failed to prune " + todir + ": " + e.getMessage(), e, getLocation());
+        }
+        return deleted[0];
+    }
+
+    /**
+     * @return The directory where the dependencies are staged.
+     */
+    public File getTodir() {
+        return configuration.getTodir();
+    }
+
+    /**
+     * @param todir The directory where the dependencies are staged.
+     */
+    public void setTodir(File todir) {
+        configuration.setTodir(todir);
+    }
+
+    /**
+     * @return Comma separated list of artifact scopes to include.
+     */
+    public String getScopes() {
+        return configuration.getScopes();
+    }
+
+    /**
+     * @param scopes Comma separated list of artifact scopes to include.
+     */
+    public void setScopes(String scopes) {
+        configuration.setScopes(scopes);
+    }
+
+    /**
+     * @return Comma separated list of artifact types to include.
+     */
+    public String getTypes() {
+        return configuration.getTypes();
+    }
+
+    /**
+     * @param types Comma separated list of artifact types to include.
+     */
+    public void setTypes(String types) {
+        configuration.setTypes(types);
+    }
+
+    /**
+     * @return Whether the version is removed from the file names, as with a <code>VersionMapper</code>.
+     */
+    public boolean isStripVersion() {
+        return configuration.isStripVersion();
+    }
+
+    /**
+     * @param stripVersion Whether the version is removed from the file names, as with a <code>VersionMapper</code>.
+     */
+    public void setStripVersion(boolean stripVersion) {
+        configuration.setStripVersion(stripVersion);
+    }
+
+    /**
+     * @return Whether the files are staged directly in the directory, rather than in the layout of the local
+     *         repository.
+     */
+    public boolean isFlatten() {
+        return configuration.isFlatten();
+    }
+
+    /**
+     * @param flatten Whether the files are staged directly in the directory, rather than in the layout of the local
+     *            repository.
+     */
+    public void setFlatten(boolean flatten) {
+        configuration.setFlatten(flatten);
+    }
+
+    /**
+     * @return How the files are staged: <code>hard</code> or <code>symbolic</code> to create links, <code>none</code>
+     *         to copy their content.
+     */
+    public String getLink() {
+        return configuration.getLink();
+    }
+
+    /**
+     * @param link How the files are staged: <code>hard</code> or <code>symbolic</code> to create links, or copies when
+     *            the links cannot be created, <code>none</code> to copy their content.
+     */
+    public void setLink(String link) {
+        configuration.setLink(link);
+    }
+
+    /**
+     * @return The maximum number of files staged at the same time, 0 for the number of processors.
+     */
+    public int getThreads() {
+        return configuration.getThreads();
+    }
+
+    /**
+     * @param threads The maximum number of files staged at the same time, 0 for the number of processors.
+     */
+    public void setThreads(int threads) {
+        configuration.setThreads(threads);
+    }
+
+    /**
+     * @return Whether the other files of the staging directory are deleted.
+     */
+    public boolean isPrune() {
+        return configuration.isPrune();
+    }
+
+    /**
+     * @param prune Whether the other files of the staging directory are deleted, such as the older versions of the
+     *            dependencies.
+     */
+    public void setPrune(boolean prune) {
+        configuration.setPrune(prune);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+
+/**
+ * Fileset of known files, such as the files of the dependencies in the local repository. Its directory is never
+ * scanned: the paths of the files are computed when the fileset is first used, and the ones of the existing files are
+ * included. Since it is a {@link FileSet}, it can be used with <code>&lt;fileset refid="..."/&gt;</code>.
+ */
+public class ArtifactFileSet extends FileSet {
+
+    private final Supplier<Collection<String>> paths;
+
+    /**
+     * @param dir The directory of the fileset.
+     * @param paths The paths of the files, relative to the directory and separated by <code>/</code>.
+     */
+    public ArtifactFileSet(File dir, Supplier<Collection<String>> paths) {
+        setDir(dir);
+        this.paths = paths;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DirectoryScanner getDirectoryScanner(Project p) {
+        if (isReference()) {
+            return getRef(p).getDirectoryScanner(p);
+        }
+        DirectoryScanner scanner = new ArtifactDirectoryScanner(paths.get());
+        scanner.setBasedir(getDir(p));
+        scanner.scan();
+        return scanner;
+    }
+
+    /**
+     * Scanner including the given files, without reading the directory.
+     */
+    private static class ArtifactDirectoryScanner extends DirectoryScanner {
+
+        private final Collection<String> paths;
+
+        ArtifactDirectoryScanner(Collection<String> paths) {
+            this.paths = paths;
+        }
+
+        @Override
+        public synchronized void scan() {
+            clearResults();
+            for (String path : paths) {
+                String name = path.replace('/', File.separatorChar);
+                if (new File(basedir, name).isFile()) {
+                    filesIncluded.addElement(name);
+                }
+            }
+            // nothing else to find
+            haveSlowResults = true;
+        }
+
+        @Override
+        protected void slowScan() {
+            // the results are complete
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Writes the checksums of files next to them, as <code>file.sha1</code>, <code>file.sha256</code>, etc, with all the
+ * digests of a file computed in one read. The files are read on a pool of worker threads, so that the checksums of
+ * several files are computed in parallel while the Ant build goes on, and the build waits for them with
+ * {@link #await()}.
+ * <p>
+ * The checksums are always computed again: the modification time of a checksum file does not tell whether the file
+ * was rewritten since, and the checksum files only hold the digest.
+ */
+public class ChecksumWriter implements AutoCloseable {
+
+    /**
+     * The size of the blocks read from the files.
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The buffer of each thread, reused for all the files it reads. Unlike mapped regions, it holds no lock on the
+     * files.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final int threads;
+
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    private ExecutorService executor;
+
+    /**
+     * @param threads The maximum number of files read at the same time.
+     */
+    public ChecksumWriter(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Computes the checksums of a file in the background.
+     *
+     * @param file The file.
+     * @param algorithms The digest algorithms, such as <code>SHA-256</code>.
+     */
+    public synchronized void submit(File file, List<String> algorithms) {
+        checkAlgorithms(algorithms);
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "antrun-checksums-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending.add(executor.submit(() -> {
+            write(file, algorithms);
+            return null;
+        }));
+    }
+
+    /**
+     * Waits for the checksums submitted so far.
+     *
+     * @throws BuildException If a checksum could not be written.
+     */
+    public void await() {
+        List<Future<?>> futures;
+        synchronized (this) {
+            futures = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("Interrupted while computing checksums", e);
+            } catch (ExecutionException e) {
+                throw new BuildException("Unable to write checksum: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads, without waiting for the pending checksums.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Computes the checksums of a file, and writes them next to the file.
+     *
+     * @param file The file.
+     * @param algorithms The digest algorithms, such as <code>SHA-256</code>.
+     * @return The checksum files.
+     * @throws IOException If the file could not be read or a checksum file written.
+     */
+    public static List<File> write(File file, List<String> algorithms) throws IOException {
+        List<File> checksumFiles = new ArrayList<>();
+        Map<File, MessageDigest> digests = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            File checksumFile = getChecksumFile(file, algorithm);
+            checksumFiles.add(checksumFile);
+            digests.put(checksumFile, newDigest(algorithm));
+        }
+
+        ByteBuffer buffer = BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                for (MessageDigest digest : digests.values()) {
+                    buffer.rewind();
+                    digest.update(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        for (Map.Entry<File, MessageDigest> entry : digests.entrySet()) {
+            Files.write(entry.getKey().toPath(), toHex(entry.getValue().digest()).getBytes(StandardCharsets.US_ASCII));
+        }
+        return checksumFiles;
+    }
+
+    /**
+     * @param file A file.
+     * @param algorithm A digest algorithm, such as <code>SHA-256</code>.
+     * @return The checksum file, such as <code>file.sha256</code>.
+     */
+    public static File getChecksumFile(File file, String algorithm) {
+        String extension = algorithm.replace("-", "").toLowerCase(Locale.ROOT);
+        return new File(file.getPath() + "." + extension);
+    }
+
+    /**
+     * @param algorithms Digest algorithms.
+     * @throws BuildException If one of the algorithms is not supported.
+     */
+    public static void checkAlgorithms(List<String> algorithms) {
+        for (String algorithm : algorithms) {
+            newDigest(algorithm);
+        }
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new BuildException("Unsupported checksum algorithm: " + algorithm, e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
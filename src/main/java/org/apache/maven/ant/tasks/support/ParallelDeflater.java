@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses streams of raw deflate data on a pool of worker threads, as <code>pigz</code> does. The data written is
+ * cut in blocks of {@link #BLOCK_SIZE} bytes, and each block is compressed on its own, with the end of the previous
+ * block of the stream as dictionary. All the blocks but the last one of a stream end with a sync flush, so that the
+ * compressed blocks put together form a single deflate stream.
+ * <p>
+ * The blocks only depend on the data and on the compression level, so the output is the same with any number of
+ * threads. The compressed blocks are written in order by the thread writing the data, along with the actions queued
+ * with {@link #then(Action)} in between, such as the headers of the entries of an archive. A few blocks per thread are
+ * compressed ahead, so that the memory used is bounded.
+ */
+public class ParallelDeflater {
+
+    /**
+     * The size of the blocks compressed on their own.
+     */
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * The size of the deflate window, which is the size of the dictionaries.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * An action run in order with the compressed blocks.
+     */
+    public interface Action {
+        /**
+         * @throws IOException If the output cannot be written.
+         */
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor;
+
+    private final int level;
+
+    private final int window;
+
+    private final OutputStream out;
+
+    /**
+     * The compressed blocks, as futures, and the actions not written yet, in order.
+     */
+    private final Deque<Object> pending = new ArrayDeque<>();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    private int length;
+
+    /**
+     * The end of the previous block of the current stream, or null at the start of a stream.
+     */
+    private byte[] dictionary;
+
+    /**
+     * @param executor The threads compressing the blocks.
+     * @param threads The number of threads of the executor.
+     * @param level The compression level, from 0 to 9, or -1 for the default one.
+     * @param out The output of the compressed blocks.
+     */
+    public ParallelDeflater(ExecutorService executor, int threads, int level, OutputStream out) {
+        this.executor = executor;
+        this.level = level;
+        this.window = 4 * threads;
+        this.out = out;
+    }
+
+    /**
+     * Writes data of the current stream.
+     *
+     * @param b The data.
+     * @param off The start of the data.
+     * @param len The length of the data.
+     * @throws IOException If the output cannot be written.
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - length);
+            System.arraycopy(b, off, block, length, n);
+            length += n;
+            off += n;
+            len -= n;
+            if (length == BLOCK_SIZE) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Ends the current stream, so that the data written next starts a new one.
+     *
+     * @throws IOException If the output cannot be written.
+     */
+    public void finish() throws IOException {
+        submit(true);
+    }
+
+    /**
+     * Queues an action, run once all the data written before is compressed and written.
+     *
+     * @param action The action.
+     * @throws IOException If the output cannot be written.
+     */
+    public void then(Action action) throws IOException {
+        pending.add(action);
+        drain(window);
+    }
+
+    /**
+     * Waits for all the blocks, and writes them.
+     *
+     * @throws IOException If the output cannot be written.
+     */
+    public void flush() throws IOException {
+        drain(0);
+    }
+
+    /**
+     * Gives up the blocks not written yet.
+     */
+    public void cancel() {
+        for (Object item : pending) {
+            if (item instanceof Future) {
+                ((Future<?>) item).cancel(true);
+            }
+        }
+        pending.clear();
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] data;
+        if (length == BLOCK_SIZE) {
+            data = block;
+            block = new byte[BLOCK_SIZE];
+        } else {
+            // the block is reused, as the small files of an archive each end in a small block
+            data = Arrays.copyOf(block, length);
+        }
+        int size = length;
+        byte[] previous = dictionary;
+        pending.add(executor.submit(() -> deflate(data, size, previous, level, last)));
+        dictionary = last ? null : Arrays.copyOfRange(data, Math.max(0, size - DICTIONARY_SIZE), size);
+        length = 0;
+        drain(window);
+    }
+
+    private void drain(int max) throws IOException {
+        while (pending.size() > max) {
+            Object item = pending.poll();
+            if (item instanceof Action) {
+                ((Action) item).run();
+                continue;
+            }
+            try {
+                @SuppressWarnings("unchecked")
+                byte[] compressed = ((Future<byte[]>) item).get();
+                out.write(compressed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to compress: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * @return The raw deflate data of a block, ending with a sync flush unless it is the last block of its stream.
+     */
+    static byte[] deflate(byte[] data, int length, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null && dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] buffer = new byte[length + (length >> 12) + (length >> 14) + 64];
+            int size = 0;
+            while (true) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+                int available = buffer.length - size;
+                int n = last
+                        ? deflater.deflate(buffer, size, available)
+                        : deflater.deflate(buffer, size, available, Deflater.SYNC_FLUSH);
+                size += n;
+                // without a full buffer, a sync flush is complete
+                if (last ? deflater.finished() : n < available) {
+                    return Arrays.copyOf(buffer, size);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+}
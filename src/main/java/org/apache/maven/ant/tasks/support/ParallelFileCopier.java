@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Copies files on a pool of worker threads, or links them. The content is copied with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the operating system
+ * copy it without going through the JVM, and the copies keep the modification time of their source. A target which
+ * already has the size and the modification time of its source, or which already links to it, is kept.
+ * <p>
+ * A target is deleted before it is replaced, so that a link to a source is never written to. When a link cannot be
+ * created, for instance on another file system, the file is copied.
+ */
+public class ParallelFileCopier {
+
+    /**
+     * Copies the content of the files.
+     */
+    public static final String LINK_NONE = "none";
+
+    /**
+     * Creates hard links to the files.
+     */
+    public static final String LINK_HARD = "hard";
+
+    /**
+     * Creates symbolic links to the absolute paths of the files.
+     */
+    public static final String LINK_SYMBOLIC = "symbolic";
+
+    private final int threads;
+
+    private final String link;
+
+    private final AtomicInteger copied = new AtomicInteger();
+
+    private final AtomicInteger linked = new AtomicInteger();
+
+    private final AtomicInteger unchanged = new AtomicInteger();
+
+    /**
+     * @param threads The maximum number of files copied at the same time, 0 for the number of processors.
+     * @param link How the files are copied: {@link #LINK_NONE}, {@link #LINK_HARD} or {@link #LINK_SYMBOLIC}.
+     */
+    public ParallelFileCopier(int threads, String link) {
+        if (threads < 0) {
+            throw new BuildException("threads must not be negative: " + threads);
+        }
+        if (!LINK_NONE.equals(link) && !LINK_HARD.equals(link) && !LINK_SYMBOLIC.equals(link)) {
+            throw new BuildException(
+                    "link must be " + LINK_NONE + ", " + LINK_HARD + " or " + LINK_SYMBOLIC + ": " + link);
+        }
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.link = link;
+    }
+
+    /**
+     * Copies files, and waits for all of them.
+     *
+     * @param copies The source and the target of each copy.
+     * @param overwrite Whether the targets which are up to date are replaced too.
+     * @return The failures, one message per file which could not be copied.
+     * @throws InterruptedException If the thread is interrupted while waiting for the copies.
+     */
+    public List<String> copy(List<File[]> copies, boolean overwrite) throws InterruptedException {
+        List<String> failures = new ArrayList<>();
+        if (copies.isEmpty()) {
+            return failures;
+        }
+        AtomicInteger thread = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, copies.size()), r -> {
+            Thread t = new Thread(r, "antrun-copy-" + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<String>> futures = new ArrayList<>(copies.size());
+            for (File[] copy : copies) {
+                futures.add(executor.submit(() -> copy(copy[0], copy[1], overwrite)));
+            }
+            for (Future<String> future : futures) {
+                String failure = future.get();
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new BuildException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    /**
+     * @return The number of files copied so far.
+     */
+    public int getCopied() {
+        return copied.get();
+    }
+
+    /**
+     * @return The number of files linked so far.
+     */
+    public int getLinked() {
+        return linked.get();
+    }
+
+    /**
+     * @return The number of targets kept so far, as they were up to date.
+     */
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return null if the file was copied, or the reason why it was not.
+     */
+    private String copy(File from, File to, boolean overwrite) throws IOException {
+        Path source = from.toPath();
+        Path target = to.toPath();
+        try {
+            if (!overwrite && isUpToDate(source, target)) {
+                unchanged.incrementAndGet();
+                return null;
+            }
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            if (createLink(source, target)) {
+                linked.incrementAndGet();
+            } else {
+                transfer(source, target);
+                copied.incrementAndGet();
+            }
+            return null;
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            return "Failed to copy " + from + " to " + to + " due to " + e;
+        }
+    }
+
+    /**
+     * @return Whether the target links to the source as asked, or is a file with its size and modification time.
+     */
+    private boolean isUpToDate(Path source, Path target) throws IOException {
+        if (Files.isSymbolicLink(target)) {
+            return LINK_SYMBOLIC.equals(link)
+                    && Files.readSymbolicLink(target).equals(source.toAbsolutePath())
+                    && Files.isRegularFile(source);
+        }
+        if (!Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        if (LINK_HARD.equals(link) && Files.isSameFile(source, target)) {
+            return true;
+        }
+        // in milliseconds, as the tools setting the modification times, and some file systems, are not more precise
+        return Files.size(target) == Files.size(source)
+                && Files.getLastModifiedTime(target).toMillis()
+                        == Files.getLastModifiedTime(source).toMillis();
+    }
+
+    /**
+     * @return Whether the target was created as a link, false if the file is to be copied.
+     */
+    private boolean createLink(Path source, Path target) {
+        try {
+            if (LINK_HARD.equals(link)) {
+                Files.createLink(target, source);
+                return true;
+            }
+            if (LINK_SYMBOLIC.equals(link)) {
+                Files.createSymbolicLink(target, source.toAbsolutePath());
+                return true;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // on another file system, or without the privilege to create symbolic links, copy it
+        }
+        return false;
+    }
+
+    private static void transfer(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            long size = in.size();
+            for (long position = 0; position < size; ) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    // the source was truncated meanwhile
+                    break;
+                }
+                position += transferred;
+            }
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+}
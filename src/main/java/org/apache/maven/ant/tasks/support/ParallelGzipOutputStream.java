@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+/**
+ * Writes gzip data compressed in blocks by a {@link ParallelDeflater}. The output does not depend on the number of
+ * threads, and its header has no modification time, so the same data is always compressed to the same bytes.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * The gzip header, as written by {@link java.util.zip.GZIPOutputStream}.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0};
+
+    private final OutputStream out;
+
+    private final ParallelDeflater deflater;
+
+    private final CRC32 crc = new CRC32();
+
+    private long size;
+
+    private boolean closed;
+
+    /**
+     * @param out The output of the gzip data, closed with this stream.
+     * @param executor The threads compressing the blocks.
+     * @param threads The number of threads of the executor.
+     * @param level The compression level, from 0 to 9, or -1 for the default one.
+     * @throws IOException If the header cannot be written.
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int threads, int level)
+            throws IOException {
+        this.out = out;
+        this.deflater = new ParallelDeflater(executor, threads, level, out);
+        out.write(HEADER);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        crc.update(b, off, len);
+        size += len;
+        deflater.write(b, off, len);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            deflater.finish();
+            deflater.flush();
+            long value = crc.getValue();
+            // the CRC and the size modulo 2^32, little endian
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (value >>> (8 * i));
+                trailer[4 + i] = (byte) (size >>> (8 * i));
+            }
+            out.write(trailer);
+        } catch (IOException | RuntimeException e) {
+            deflater.cancel();
+            throw e;
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipUtil;
+
+/**
+ * Writes a zip file whose entries are compressed by a {@link ParallelDeflater}, so that the blocks of the next entries
+ * are compressed while an entry is written. The entries are written in the order they are added, with their names in
+ * UTF-8 and their Unix modes, and with the Zip64 extensions when the archive or its entries are too big for the zip
+ * format. The output does not depend on the number of threads.
+ * <p>
+ * The local header of an entry is written before its content, and updated once the entry is compressed.
+ */
+public class ParallelZipWriter implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    /**
+     * The names are in UTF-8.
+     */
+    private static final int UTF8_FLAG = 0x0800;
+
+    private static final int VERSION = 20;
+
+    private static final int ZIP64_VERSION = 45;
+
+    /**
+     * The entries are written by Unix, so that their modes are read.
+     */
+    private static final int UNIX = 3 << 8;
+
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+
+    private static final int MAX_16 = 0xFFFF;
+
+    /**
+     * The size from which a file has the Zip64 sizes in its local header, low enough for its compressed content to fit
+     * in 32 bits too.
+     */
+    private static final long ZIP64_SIZE = 0xF0000000L;
+
+    private final ChannelOutput out;
+
+    private final ParallelDeflater deflater;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /**
+     * @param file The zip file to write.
+     * @param executor The threads compressing the entries.
+     * @param threads The number of threads of the executor.
+     * @param level The compression level, from 0 to 9, or -1 for the default one.
+     * @throws IOException If the file cannot be created.
+     */
+    public ParallelZipWriter(File file, ExecutorService executor, int threads, int level) throws IOException {
+        this.out = new ChannelOutput(FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        this.deflater = new ParallelDeflater(executor, threads, level, out);
+    }
+
+    /**
+     * Adds a directory.
+     *
+     * @param name The name of the directory, ending with <code>/</code>.
+     * @param time The modification time of the directory.
+     * @param mode The Unix mode of the directory, such as <code>040755</code>.
+     * @throws IOException If the archive cannot be written.
+     */
+    public void addDirectory(String name, long time, int mode) throws IOException {
+        Entry entry = new Entry(name, time, mode, STORED, false);
+        deflater.then(() -> writeLocalHeader(entry));
+        entries.add(entry);
+    }
+
+    /**
+     * Adds a file, compressed.
+     *
+     * @param name The name of the file in the archive.
+     * @param file The file.
+     * @param time The modification time of the file.
+     * @param mode The Unix mode of the file, such as <code>0100644</code>.
+     * @throws IOException If the file cannot be read, or the archive cannot be written.
+     */
+    public void addFile(String name, File file, long time, int mode) throws IOException {
+        Entry entry = new Entry(name, time, mode, DEFLATED, file.length() >= ZIP64_SIZE);
+        deflater.then(() -> writeLocalHeader(entry));
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+                deflater.write(buffer, 0, n);
+                size += n;
+            }
+        }
+        deflater.finish();
+        if (!entry.zip64 && size >= ZIP64_SIZE) {
+            throw new IOException(file + " grew while it was archived");
+        }
+        long crcValue = crc.getValue();
+        long uncompressedSize = size;
+        deflater.then(() -> {
+            entry.crc = crcValue;
+            entry.size = uncompressedSize;
+            entry.compressedSize = out.position() - entry.dataOffset;
+            updateLocalHeader(entry);
+        });
+        entries.add(entry);
+    }
+
+    /**
+     * Writes the entries left and the central directory, and closes the file.
+     *
+     * @throws IOException If the archive cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            deflater.flush();
+            long start = out.position();
+            for (Entry entry : entries) {
+                writeCentralHeader(entry);
+            }
+            writeEnd(start, out.position() - start);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            deflater.cancel();
+            throw e;
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.offset = out.position();
+        ByteBuffer header = newBuffer(30 + entry.name.length + (entry.zip64 ? 20 : 0));
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) (entry.zip64 ? ZIP64_VERSION : VERSION));
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        // the CRC and sizes are updated once the entry is written
+        header.putInt(0);
+        header.putInt(entry.zip64 ? (int) MAX_32 : 0);
+        header.putInt(entry.zip64 ? (int) MAX_32 : 0);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) (entry.zip64 ? 20 : 0));
+        header.put(entry.name);
+        if (entry.zip64) {
+            header.putShort((short) ZIP64_EXTRA);
+            header.putShort((short) 16);
+            header.putLong(0);
+            header.putLong(0);
+        }
+        out.write(header.array());
+        entry.dataOffset = out.position();
+    }
+
+    private void updateLocalHeader(Entry entry) throws IOException {
+        if (entry.zip64) {
+            out.patch(entry.offset + 14, newBuffer(4).putInt((int) entry.crc).array());
+            ByteBuffer sizes = newBuffer(16).putLong(entry.size).putLong(entry.compressedSize);
+            out.patch(entry.offset + 30 + entry.name.length + 4, sizes.array());
+        } else {
+            ByteBuffer values =
+                    newBuffer(12).putInt((int) entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size);
+            out.patch(entry.offset + 14, values.array());
+        }
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean zip64Sizes = entry.zip64 || entry.size >= MAX_32 || entry.compressedSize >= MAX_32;
+        boolean zip64Offset = entry.offset >= MAX_32;
+        int extraLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+        int version = extraLength > 0 ? ZIP64_VERSION : VERSION;
+        boolean directory = (entry.mode & UnixStat.DIR_FLAG) == UnixStat.DIR_FLAG;
+
+        ByteBuffer header = newBuffer(46 + entry.name.length + (extraLength > 0 ? 4 + extraLength : 0));
+        header.putInt(CENTRAL_HEADER_SIGNATURE);
+        header.putShort((short) (UNIX | version));
+        header.putShort((short) version);
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt(zip64Sizes ? (int) MAX_32 : (int) entry.compressedSize);
+        header.putInt(zip64Sizes ? (int) MAX_32 : (int) entry.size);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) (extraLength > 0 ? 4 + extraLength : 0));
+        // comment length, disk number and internal attributes
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        // the Unix mode, and the MS-DOS read-only and directory flags, as org.apache.tools.zip.ZipEntry sets them
+        header.putInt((entry.mode << 16) | ((entry.mode & 0200) == 0 ? 1 : 0) | (directory ? 0x10 : 0));
+        header.putInt(zip64Offset ? (int) MAX_32 : (int) entry.offset);
+        header.put(entry.name);
+        if (extraLength > 0) {
+            header.putShort((short) ZIP64_EXTRA);
+            header.putShort((short) extraLength);
+            if (zip64Sizes) {
+                header.putLong(entry.size);
+                header.putLong(entry.compressedSize);
+            }
+            if (zip64Offset) {
+                header.putLong(entry.offset);
+            }
+        }
+        out.write(header.array());
+    }
+
+    private void writeEnd(long start, long size) throws IOException {
+        int count = entries.size();
+        if (count >= MAX_16 || start >= MAX_32 || size >= MAX_32) {
+            long offset = out.position();
+            ByteBuffer zip64 = newBuffer(56 + 20);
+            zip64.putInt(ZIP64_END_SIGNATURE);
+            zip64.putLong(44);
+            zip64.putShort((short) (UNIX | ZIP64_VERSION));
+            zip64.putShort((short) ZIP64_VERSION);
+            zip64.putInt(0);
+            zip64.putInt(0);
+            zip64.putLong(count);
+            zip64.putLong(count);
+            zip64.putLong(size);
+            zip64.putLong(start);
+            zip64.putInt(ZIP64_LOCATOR_SIGNATURE);
+            zip64.putInt(0);
+            zip64.putLong(offset);
+            zip64.putInt(1);
+            out.write(zip64.array());
+        }
+        ByteBuffer end = newBuffer(22);
+        end.putInt(END_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) Math.min(count, MAX_16));
+        end.putShort((short) Math.min(count, MAX_16));
+        end.putInt((int) Math.min(size, MAX_32));
+        end.putInt((int) Math.min(start, MAX_32));
+        end.putShort((short) 0);
+        out.write(end.array());
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static final class Entry {
+        private final byte[] name;
+
+        private final int dosTime;
+
+        private final int mode;
+
+        private final int method;
+
+        /**
+         * Whether the local header has the Zip64 sizes.
+         */
+        private final boolean zip64;
+
+        private long offset;
+
+        private long dataOffset;
+
+        private long crc;
+
+        private long size;
+
+        private long compressedSize;
+
+        Entry(String name, long time, int mode, int method, boolean zip64) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.dosTime = toDosTime(time);
+            this.mode = mode;
+            this.method = method;
+            this.zip64 = zip64;
+        }
+
+        private static int toDosTime(long time) {
+            byte[] bytes = ZipUtil.toDosTime(time);
+            return (bytes[0] & 0xFF) | (bytes[1] & 0xFF) << 8 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 24;
+        }
+    }
+
+    /**
+     * Buffers the output of the archive, and writes back its local headers.
+     */
+    private static final class ChannelOutput extends OutputStream {
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        private long flushed;
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void patch(long position, byte[] bytes) throws IOException {
+            if (position >= flushed) {
+                int current = buffer.position();
+                buffer.position((int) (position - flushed));
+                buffer.put(bytes);
+                buffer.position(current);
+                return;
+            }
+            flush();
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                channel.write(data, position + data.position());
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > buffer.remaining()) {
+                flush();
+            }
+            if (len > buffer.remaining()) {
+                ByteBuffer data = ByteBuffer.wrap(b, off, len);
+                while (data.hasRemaining()) {
+                    flushed += channel.write(data);
+                }
+            } else {
+                buffer.put(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -19,50 +19,137 @@
 package org.apache.maven.ant.tasks.support;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.util.FileNameMapper;
 
 /**
  * Ant filename mapper to remove version info from filename when copying dependencies.
+ * <p>
+ * Without <code>from</code> attribute, the names of the dependency files are read from the Maven project, and each of
+ * them is mapped with a single lookup. Other files, and all files when <code>from</code> is set, are searched for the
+ * versions in one pass.
  *
  * @author <a href="mailto:hboutemy@apache.org">Herve Boutemy</a>
  */
 public class VersionMapper implements FileNameMapper, Comparator<String> {
+    private Project project;
+
     private List<String> versions;
 
+    /**
+     * The unversioned names of the dependency files, by file name.
+     */
+    private Map<String, String> unversionedNames;
+
+    private VersionMatcher matcher;
+
     private String to;
 
+    /**
+     * Set by Ant when the mapper is created.
+     *
+     * @param project the Ant project, holding the Maven project reference
+     */
+    public void setProject(Project project) {
+        this.project = project;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String[] mapFileName(String sourceFileName) {
+        if (matcher == null) {
+            init();
+        }
         String originalFileName = new File(sourceFileName).getName();
-        for (String version : versions) {
-            int index = originalFileName.indexOf(version);
-            if (index >= 0) {
-                // remove version in artifactId-version(-classifier).type
-                String baseFilename = originalFileName.substring(0, index - 1);
-                String extension = originalFileName.substring(index + version.length());
-                String path = sourceFileName.substring(0, sourceFileName.length() - originalFileName.length());
-                if ("flatten".equals(to)) {
-                    path = "";
-                }
-                return new String[] {path + baseFilename + extension};
+        String unversionedName = unversionedNames.get(originalFileName);
+        if (unversionedName == null) {
+            unversionedName = matcher.removeVersion(originalFileName);
+        }
+        if (unversionedName != null) {
+            String path = sourceFileName.substring(0, sourceFileName.length() - originalFileName.length());
+            if ("flatten".equals(to)) {
+                path = "";
             }
+            return new String[] {path + unversionedName};
         }
         return new String[] {sourceFileName};
     }
 
+    private void init() {
+        if (versions != null) {
+            unversionedNames = new HashMap<>();
+            matcher = new VersionMatcher(versions);
+            return;
+        }
+
+        MavenProject mavenProject =
+                project == null ? null : project.getReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID);
+        if (mavenProject == null) {
+            throw new BuildException("Maven project reference not found: " + AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID);
+        }
+
+        unversionedNames = new HashMap<>();
+        Set<String> allVersions = new LinkedHashSet<>();
+        for (Artifact artifact : mavenProject.getArtifacts()) {
+            allVersions.add(artifact.getVersion());
+            allVersions.add(artifact.getBaseVersion());
+            if (artifact.getFile() != null) {
+                String fileName = artifact.getFile().getName();
+                // the file of a snapshot may be named after its base version
+                String unversionedName = removeVersion(fileName, artifact.getVersion());
+                if (unversionedName == null) {
+                    unversionedName = removeVersion(fileName, artifact.getBaseVersion());
+                }
+                if (unversionedName != null) {
+                    unversionedNames.put(fileName, unversionedName);
+                }
+            }
+        }
+        String[] sorted = allVersions.toArray(new String[0]);
+        Arrays.sort(sorted, this);
+        matcher = new VersionMatcher(Arrays.asList(sorted));
+    }
+
+    private static String removeVersion(String fileName, String version) {
+        if (version == null) {
+            return null;
+        }
+        int index = fileName.indexOf(version);
+        if (index <= 0) {
+            return null;
+        }
+        // remove version in artifactId-version(-classifier).type
+        return fileName.substring(0, index - 1) + fileName.substring(index + version.length());
+    }
+
     /**
      * Set the versions identifiers that this mapper can remove from filenames. The separator value used is path
      * separator, as used by dependencies task when setting <code>versionsId</code> property value.
      *
-     * @param from the string from which we set
+     * @param from the string from which we set, or <code>null</code> to read the dependencies of the Maven project
      */
     @Override
     public void setFrom(String from) {
+        matcher = null;
+        if (from == null) {
+            versions = null;
+            return;
+        }
         String[] split = from.split(File.pathSeparator);
         // sort, from lengthiest to smallest
         Arrays.sort(split, this);
@@ -84,4 +171,113 @@ public class VersionMapper implements FileNameMapper, Comparator<String> {
         int lengthDiff = s2.length() - s1.length();
         return (lengthDiff != 0) ? lengthDiff : s1.compareTo(s2);
     }
+
+    /**
+     * Aho-Corasick automaton finding all the versions in a filename in one pass. The version removed is the first of
+     * the list found in the filename, at its first position, as if each version was searched in turn. A version at the
+     * start of the filename is ignored, as it is not preceded by the artifactId and a separator.
+     */
+    static final class VersionMatcher {
+        private final List<String> versions;
+
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+
+        /**
+         * Indexes in {@link #versions} of the versions ending in each state, lowest first.
+         */
+        private final List<int[]> outputs = new ArrayList<>();
+
+        private int[] failures;
+
+        VersionMatcher(List<String> versions) {
+            this.versions = versions;
+            newState();
+            for (int i = 0; i < versions.size(); i++) {
+                String version = versions.get(i);
+                if (version.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int j = 0; j < version.length(); j++) {
+                    Integer next = transitions.get(state).get(version.charAt(j));
+                    if (next == null) {
+                        next = newState();
+                        transitions.get(state).put(version.charAt(j), next);
+                    }
+                    state = next;
+                }
+                outputs.set(state, append(outputs.get(state), new int[] {i}));
+            }
+            buildFailures();
+        }
+
+        private int newState() {
+            transitions.add(new HashMap<>());
+            outputs.add(new int[0]);
+            return transitions.size() - 1;
+        }
+
+        private void buildFailures() {
+            failures = new int[transitions.size()];
+            Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                for (Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+                    int next = transition.getValue();
+                    int failure = failures[state];
+                    while (failure != 0 && !transitions.get(failure).containsKey(transition.getKey())) {
+                        failure = failures[failure];
+                    }
+                    Integer target = transitions.get(failure).get(transition.getKey());
+                    failures[next] = (target == null || target == next) ? 0 : target;
+                    outputs.set(next, append(outputs.get(next), outputs.get(failures[next])));
+                    queue.add(next);
+                }
+            }
+        }
+
+        private static int[] append(int[] first, int[] second) {
+            int[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            Arrays.sort(result);
+            return result;
+        }
+
+        /**
+         * @param fileName a filename
+         * @return the filename without the version and the character preceding it, or <code>null</code> if it
+         *         contains none of the versions
+         */
+        String removeVersion(String fileName) {
+            int best = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            int state = 0;
+            for (int i = 0; i < fileName.length(); i++) {
+                char c = fileName.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                while (next == null && state != 0) {
+                    state = failures[state];
+                    next = transitions.get(state).get(c);
+                }
+                state = next == null ? 0 : next;
+                // the first time a version is found is its first position
+                for (int found : outputs.get(state)) {
+                    if (found >= best) {
+                        break;
+                    }
+                    int index = i + 1 - versions.get(found).length();
+                    if (index > 0) {
+                        best = found;
+                        bestIndex = index;
+                        break;
+                    }
+                }
+            }
+            if (bestIndex < 0) {
+                return null;
+            }
+            String version = versions.get(best);
+            return fileName.substring(0, bestIndex - 1) + fileName.substring(bestIndex + version.length());
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import org.apache.tools.ant.BuildListener;
+
+/**
+ * Emits JDK Flight Recorder events for the phases of the executions and for each Ant target and task, so that the
+ * recordings of a Maven build show where the time of the plugin goes. The events are only created while a recording
+ * enables them. On a JVM without the <code>jdk.jfr</code> module, such as some Java 8 builds, nothing is emitted.
+ * <p>
+ * The events are emitted by <code>JfrAntFlightRecorder</code>, which is compiled for Java 11 from
+ * <code>src/main/java11</code>, and only loaded by name.
+ */
+class AntFlightRecorder {
+
+    private static final AntFlightRecorder INSTANCE = create();
+
+    /**
+     * A phase which emits no event.
+     */
+    private static final Phase NO_PHASE = () -> {};
+
+    /**
+     * A phase of an execution, emitted when it is closed.
+     */
+    interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * @return The recorder of the JVM.
+     */
+    static AntFlightRecorder get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param module The module of the execution.
+     * @param name The name of the phase, such as <code>execution</code>.
+     * @return The phase to close once it is over.
+     */
+    Phase begin(String module, String name) {
+        return NO_PHASE;
+    }
+
+    /**
+     * @param module The module of the execution.
+     * @return The listener emitting the events of the targets and tasks of a project, or null if no recording enables
+     *         them when the execution starts.
+     */
+    BuildListener newListener(String module) {
+        return null;
+    }
+
+    private static AntFlightRecorder create() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            // only loaded once the events are known to be supported, and fails to load on Java 8 as it targets Java 11
+            return (AntFlightRecorder) Class.forName("org.apache.maven.plugins.antrun.JfrAntFlightRecorder")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new AntFlightRecorder();
+        }
+    }
+}
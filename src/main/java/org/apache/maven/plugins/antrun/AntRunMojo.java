@@ -23,18 +23,28 @@ import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.maven.ant.tasks.support.ChecksumWriter;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -44,13 +54,14 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.Project;
-import org.apache.tools.ant.ProjectHelper;
-import org.apache.tools.ant.taskdefs.Typedef;
 import org.apache.tools.ant.types.Path;
 import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
 import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 
 /**
  * <p>
@@ -91,6 +102,12 @@ public class AntRunMojo extends AbstractMojo {
      */
     public static final String DEFAULT_MAVEN_PROJECT_HELPER_REFID = MAVEN_REFID_PREFIX + "project.helper";
 
+    /**
+     * The refid used to store the {@link ChecksumWriter} computing the checksums of the attached artifacts in the
+     * background. The execution waits for these checksums after the Ant target.
+     */
+    public static final String DEFAULT_MAVEN_CHECKSUMS_REFID = MAVEN_REFID_PREFIX + "checksums";
+
     /**
      * The default target name.
      */
@@ -179,6 +196,35 @@ public class AntRunMojo extends AbstractMojo {
     @Parameter
     private PlexusConfiguration target;
 
+    /**
+     * Several Ant targets to run in one execution, instead of a single <code>target</code>. Each target is written as
+     * in a build.xml, with a name and the names of the targets it depends on. All the targets run in the same Ant
+     * project, after the targets they depend on, and the targets which do not depend on each other run at the same
+     * time. The name of the execution is given by the <code>name</code> attribute, <code>main</code> by default.
+     *
+     * <pre>
+     *   &lt;targets&gt;
+     *     &lt;target name="generate"&gt;...&lt;/target&gt;
+     *     &lt;target name="docs"&gt;...&lt;/target&gt;
+     *     &lt;target name="package" depends="generate,docs"&gt;...&lt;/target&gt;
+     *   &lt;/targets&gt;
+     * </pre>
+     *
+     * @since 3.2.1
+     */
+    @Parameter
+    private PlexusConfiguration targets;
+
+    /**
+     * The maximum number of <code>targets</code> running at the same time. <code>0</code> means the number of
+     * available processors. The messages of the targets are prefixed with the target name when it is not
+     * <code>1</code>.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.targetThreads", defaultValue = "0")
+    private int targetThreads;
+
     /**
      * This folder is added to the list of those folders containing source to be compiled. Use this if your Ant script
      * generates source code.
@@ -214,13 +260,32 @@ public class AntRunMojo extends AbstractMojo {
     /**
      * Specifies whether the Ant properties should propagate to the Maven properties.
      * This only works when the ant task is inline in pom.xml, not when it's loaded from
-     * an external ant build.xml file.
+     * an external ant build.xml file. Only the properties created or changed by the target propagate.
      *
      * @since 1.7
      */
     @Parameter(defaultValue = "false")
     private boolean exportAntProperties;
 
+    /**
+     * Patterns of the names of the Ant properties to propagate to the Maven properties, when
+     * <code>exportAntProperties</code> is set. <code>*</code> matches zero or more characters and <code>?</code> one
+     * character. By default, all the properties created or changed by the target are propagated.
+     *
+     * @since 3.2.1
+     */
+    @Parameter
+    private List<String> exportAntPropertiesIncludes;
+
+    /**
+     * Patterns of the names of the Ant properties which must not propagate to the Maven properties. See
+     * <code>exportAntPropertiesIncludes</code>.
+     *
+     * @since 3.2.1
+     */
+    @Parameter
+    private List<String> exportAntPropertiesExcludes;
+
     /**
      * Specifies whether a failure in the Ant build leads to a failure of the Maven build. If this value is
      * {@code false}, the Maven build will proceed even if the Ant build fails. If it is {@code true}, then the Maven
@@ -231,6 +296,147 @@ public class AntRunMojo extends AbstractMojo {
     @Parameter(defaultValue = "true")
     private boolean failOnError;
 
+    /**
+     * The files read by the Ant target. When inputs or outputs are declared, the plugin records a fingerprint of the
+     * target, of the content of the input files and of the Maven properties and classpaths after each successful
+     * execution. The Ant target is then skipped as long as neither this fingerprint nor the declared outputs change.
+     *
+     * <pre>
+     *   &lt;inputs&gt;
+     *     &lt;input&gt;
+     *       &lt;directory&gt;src/main/idl&lt;/directory&gt;
+     *       &lt;includes&gt;
+     *         &lt;include&gt;**&#47;*.idl&lt;/include&gt;
+     *       &lt;/includes&gt;
+     *     &lt;/input&gt;
+     *   &lt;/inputs&gt;
+     * </pre>
+     *
+     * @since 3.2.1
+     */
+    @Parameter
+    private List<FileSet> inputs;
+
+    /**
+     * The files written by the Ant target. The Ant target is executed again if any of these files is changed, deleted
+     * or added. See {@link #inputs}.
+     *
+     * @since 3.2.1
+     */
+    @Parameter
+    private List<FileSet> outputs;
+
+    /**
+     * Specifies whether the Ant target is written to <code>target/antrun/build-&lt;target name&gt;.xml</code>. The Ant
+     * project is configured directly from the plugin configuration, so the file is only useful to see what is run by
+     * Ant. It is also written when Maven runs in debug mode.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.writeBuildFile", defaultValue = "false")
+    private boolean writeBuildFile;
+
+    /**
+     * Specifies whether the Maven properties are only copied to the Ant project when Ant uses them, instead of all of
+     * them before the first task runs. The properties have the same values in both cases, but most targets only use a
+     * few of them.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.lazyProperties", defaultValue = "false")
+    private boolean lazyProperties;
+
+    /**
+     * Specifies whether the Ant messages are collected while the target runs and written by a background thread, in
+     * one block prefixed with the artifactId of the module. This keeps the output of the executions of different
+     * modules apart when Maven builds several modules at the same time, with <code>-T</code>.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.bufferedLogging", defaultValue = "false")
+    private boolean bufferedLogging;
+
+    /**
+     * Specifies whether the wall time, the CPU time and the memory allocated by each Ant target and task are written to
+     * <code>target/antrun/timings-&lt;target name&gt;.json</code>. The values of a task include the tasks nested in it.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.timingReport", defaultValue = "false")
+    private boolean timingReport;
+
+    /**
+     * The number of Ant tasks which took the most time to log at the end of the execution. <code>0</code> logs none.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.timingSummary", defaultValue = "0")
+    private int timingSummary;
+
+    /**
+     * Specifies whether the Ant target runs in a separate JVM instead of the Maven JVM. The JVM is started by the first
+     * forked execution, and then runs the forked executions of all the modules and builds using the same version of
+     * the plugin, until it is unused for {@link #forkIdleTimeout} seconds. The target gets the same properties and
+     * classpath references, and the messages and exported properties come back to Maven. The Maven objects are not
+     * available to the forked target, so that the Maven Ant tasks such as <code>attachartifact</code> fail, and the
+     * timing report is not supported.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.fork", defaultValue = "false")
+    private boolean fork;
+
+    /**
+     * The time, in seconds, after which the JVM running the forked executions stops when no execution uses it.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.forkIdleTimeout", defaultValue = "600")
+    private int forkIdleTimeout;
+
+    /**
+     * Specifies whether the <code>taskdef</code> and <code>typedef</code> using a <code>classpathref</code> share their
+     * class loaders with the other executions of the session, instead of opening the jars and loading the classes
+     * again in each execution. Only classpaths made of jars are shared, and a rebuilt jar gets a new loader. The static
+     * state of the tasks is then shared too, and the definitions of a project also share their loader when they use
+     * the same <code>classpathref</code>, as with the <code>ant.reuse.loader</code> property of Ant.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.sharedClassLoaders", defaultValue = "false")
+    private boolean sharedClassLoaders;
+
+    /**
+     * Specifies whether the outputs and the exported properties of the Ant targets declaring {@link #inputs} or
+     * {@link #outputs} are stored in a local cache shared by all the builds. When the target is not up to date, for
+     * instance after <code>mvn clean</code> or when switching branches, but the cache holds the outputs of an
+     * execution with the same target, inputs, classpaths and Maven properties, the outputs are restored instead of
+     * running the target. Only the outputs in the base directory of the module can be restored.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.buildCache", defaultValue = "false")
+    private boolean buildCache;
+
+    /**
+     * The directory of the build cache.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(
+            property = "maven.antrun.buildCacheDirectory",
+            defaultValue = "${settings.localRepository}/.cache/maven-antrun-plugin")
+    private File buildCacheDirectory;
+
+    /**
+     * The maximum size of the build cache, in megabytes. Once the cache is larger, the entries which were used the
+     * least recently are deleted.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "maven.antrun.buildCacheMaxSize", defaultValue = "1024")
+    private long buildCacheMaxSize;
+
     /**
      * The Maven project helper object
      */
@@ -243,6 +449,15 @@ public class AntRunMojo extends AbstractMojo {
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        AntFlightRecorder.Phase phase = AntFlightRecorder.get().begin(mavenProject.getArtifactId(), "execution");
+        try {
+            doExecute();
+        } finally {
+            phase.close();
+        }
+    }
+
+    private void doExecute() throws MojoExecutionException, MojoFailureException {
         checkDeprecatedParameterUsage(sourceRoot, "sourceRoot", "the build-helper-maven-plugin");
         checkDeprecatedParameterUsage(testSourceRoot, "testSourceRoot", "the build-helper-maven-plugin");
         if (skip) {
@@ -250,43 +465,119 @@ public class AntRunMojo extends AbstractMojo {
             return;
         }
 
-        if (target == null) {
+        if (target == null && targets == null) {
             getLog().info("No Ant target defined - SKIPPED");
             return;
         }
+        if (target != null && targets != null) {
+            throw new MojoExecutionException("Only one of target and targets can be configured");
+        }
 
         if (propertyPrefix == null) {
             propertyPrefix = "";
         }
 
-        String antTargetName = target.getAttribute("name", DEFAULT_ANT_TARGET_NAME);
-        target.setAttribute("name", antTargetName);
+        String antTargetName;
+        List<PlexusConfiguration> antTargets;
+        if (targets == null) {
+            antTargetName = target.getAttribute("name", DEFAULT_ANT_TARGET_NAME);
+            target.setAttribute("name", antTargetName);
+            antTargets = Collections.singletonList(target);
+        } else {
+            antTargetName = targets.getAttribute("name", DEFAULT_ANT_TARGET_NAME);
+            antTargets = getAntTargets(antTargetName);
+        }
 
-        Project antProject = new Project();
-        antProject.addBuildListener(getConfiguredBuildLogger());
-        try {
-            File antBuildFile = writeTargetToProjectFile(antTargetName);
-            ProjectHelper.configureProject(antProject, antBuildFile);
-            antProject.init();
+        UpToDateCheck upToDateCheck = null;
+        String buildCacheKey = null;
+        if (inputs != null || outputs != null) {
+            try {
+                upToDateCheck = createUpToDateCheck(antTargetName, antTargets);
+                // computed before the execution, which may change the Maven properties
+                buildCacheKey = buildCache ? getBuildCacheKey(upToDateCheck) : null;
+                if (isUpToDate(antTargetName, upToDateCheck, buildCacheKey)) {
+                    return;
+                }
+            } catch (IOException | DependencyResolutionRequiredException e) {
+                throw new MojoExecutionException("Error checking whether the Ant target is up to date", e);
+            }
+        }
 
-            antProject.setBaseDir(mavenProject.getBasedir());
+        String taskPrefix = getTaskPrefix();
+        if (taskPrefix != null) {
+            // replace namespace as Ant expects it to be
+            for (PlexusConfiguration antTarget : antTargets) {
+                antTarget.setAttribute("xmlns:" + taskPrefix, TASK_URI);
+            }
+        }
 
-            addAntProjectReferences(mavenProject, antProject);
-            initMavenTasks(antProject);
+        SharedClassLoaderProject sharedLoaderProject =
+                sharedClassLoaders && !fork ? new SharedClassLoaderProject(getClassLoaderCache()) : null;
+        Project antProject = sharedLoaderProject != null ? sharedLoaderProject : new Project();
+        LazyPropertyHelper propertyHelper = lazyProperties ? LazyPropertyHelper.install(antProject) : null;
+        int threads = targetThreads > 0 ? targetThreads : Runtime.getRuntime().availableProcessors();
+        boolean parallel = targets != null && threads > 1;
+        MavenLogger antLogger = getConfiguredBuildLogger();
+        antLogger.setTargetPrefix(parallel);
+        TimingListener timings = timingReport || timingSummary > 0 ? new TimingListener() : null;
+        addBuildListeners(antProject, antLogger, timings);
+        File antBuildFile = getBuildFile(antTargetName);
+        AntrunPlexusConfigurationProjectBuilder projectBuilder =
+                new AntrunPlexusConfigurationProjectBuilder(antBuildFile, "");
+        try {
+            if (fork || writeBuildFile || getLog().isDebugEnabled()) {
+                AntFlightRecorder.Phase writePhase =
+                        AntFlightRecorder.get().begin(mavenProject.getArtifactId(), "write build file");
+                try {
+                    writeTargetToProjectFile(antBuildFile, antTargets, antTargetName);
+                } finally {
+                    writePhase.close();
+                }
+            }
+            if (fork) {
+                Map<String, String> exportedProperties =
+                        executeForked(antBuildFile, antTargetName, parallel ? threads : 1, antLogger);
+                if (upToDateCheck != null) {
+                    recordExecution(upToDateCheck, buildCacheKey, exportedProperties);
+                }
+                return;
+            }
+            initAntProject(antProject, sharedLoaderProject, propertyHelper, projectBuilder, antTargets, antTargetName);
 
-            // The Ant project needs actual properties vs. using expression evaluator when calling an external build
-            // file.
-            copyProperties(mavenProject, antProject);
+            PropertyChangeRecorder propertyChanges =
+                    exportAntProperties ? PropertyChangeRecorder.install(antProject) : null;
 
             getLog().info("Executing tasks");
-            antProject.executeTarget(antTargetName);
+            BufferedLogWriter.Buffer logBuffer = bufferedLogging
+                    ? getBufferedLogWriter().open(getLog(), "[" + mavenProject.getArtifactId() + "] ")
+                    : null;
+            antLogger.setBuffer(logBuffer);
+            ChecksumWriter checksumWriter = new ChecksumWriter(Runtime.getRuntime().availableProcessors());
+            antProject.addReference(DEFAULT_MAVEN_CHECKSUMS_REFID, checksumWriter);
+            try {
+                executeAntTarget(antProject, antTargetName, parallel ? threads : 1);
+                // the attached artifacts are complete once their checksums are
+                checksumWriter.await();
+            } finally {
+                checksumWriter.close();
+                if (logBuffer != null) {
+                    antLogger.setBuffer(null);
+                    logBuffer.close();
+                }
+                if (timings != null) {
+                    reportTimings(timings, antTargetName);
+                }
+            }
             getLog().info("Executed tasks");
 
-            copyProperties(antProject, mavenProject);
+            Map<String, String> exportedProperties = exportProperties(antProject, mavenProject, propertyChanges);
+            if (upToDateCheck != null) {
+                recordExecution(upToDateCheck, buildCacheKey, exportedProperties);
+            }
         } catch (BuildException e) {
             StringBuilder sb = new StringBuilder();
             sb.append("An Ant BuildException has occurred: ").append(e.getMessage());
-            String fragment = findFragment(e);
+            String fragment = findFragment(e, antBuildFile, projectBuilder);
             if (fragment != null) {
                 sb.append("\n").append(fragment);
             }
@@ -298,6 +589,244 @@ public class AntRunMojo extends AbstractMojo {
             }
         } catch (Throwable e) {
             throw new MojoExecutionException("Error executing Ant tasks: " + e.getMessage(), e);
+        } finally {
+            if (sharedLoaderProject != null) {
+                sharedLoaderProject.releaseClassLoaders();
+            }
+        }
+    }
+
+    /**
+     * Tells whether the Ant target can be skipped, because it is unchanged since its last execution or because its
+     * outputs were restored from the build cache. The properties exported by that execution are exported again.
+     *
+     * @param antTargetName The name of the Ant target.
+     * @param upToDateCheck The {@link UpToDateCheck} of the Ant target.
+     * @param buildCacheKey The key of the execution in the build cache, or null if the build cache is disabled.
+     * @return true if the Ant target must not be executed.
+     */
+    private boolean isUpToDate(String antTargetName, UpToDateCheck upToDateCheck, String buildCacheKey)
+            throws IOException {
+        String reason = upToDateCheck.getOutOfDateReason(outputs);
+        if (reason == null) {
+            getLog().info("Skipping Ant target '" + antTargetName
+                    + "': the target, its inputs and its outputs are unchanged since the last execution");
+            restoreExportedProperties(upToDateCheck.getExportedProperties());
+            return true;
+        }
+        if (buildCacheKey != null && restoreFromBuildCache(antTargetName, buildCacheKey, upToDateCheck)) {
+            return true;
+        }
+        getLog().debug("Executing Ant target '" + antTargetName + "': " + reason);
+        return false;
+    }
+
+    private void addBuildListeners(Project antProject, MavenLogger antLogger, TimingListener timings) {
+        antProject.addBuildListener(antLogger);
+        BuildListener flightRecorderListener = AntFlightRecorder.get().newListener(mavenProject.getArtifactId());
+        if (flightRecorderListener != null) {
+            antProject.addBuildListener(flightRecorderListener);
+        }
+        if (timings != null) {
+            antProject.addBuildListener(timings);
+        }
+    }
+
+    /**
+     * Configures the Ant project with the targets, the Maven references and tasks and the Maven properties, each step
+     * being recorded as a phase of the execution.
+     */
+    private void initAntProject(
+            Project antProject,
+            SharedClassLoaderProject sharedLoaderProject,
+            LazyPropertyHelper propertyHelper,
+            AntrunPlexusConfigurationProjectBuilder projectBuilder,
+            List<PlexusConfiguration> antTargets,
+            String antTargetName) {
+        AntFlightRecorder flightRecorder = AntFlightRecorder.get();
+        String module = mavenProject.getArtifactId();
+        AntFlightRecorder.Phase configurePhase = flightRecorder.begin(module, "configure project");
+        try {
+            projectBuilder.configureProject(antProject, antTargets, antTargetName);
+        } finally {
+            configurePhase.close();
+        }
+        AntFlightRecorder.Phase initPhase = flightRecorder.begin(module, "init project");
+        try {
+            ProjectTemplate.init(antProject);
+            if (sharedLoaderProject != null) {
+                sharedLoaderProject.enableLoaderReuse();
+            }
+
+            antProject.setBaseDir(mavenProject.getBasedir());
+
+            addAntProjectReferences(mavenProject, antProject);
+            initMavenTasks(antProject);
+        } finally {
+            initPhase.close();
+        }
+
+        // The Ant project needs actual properties vs. using expression evaluator when calling an external build
+        // file.
+        AntFlightRecorder.Phase propertiesPhase = flightRecorder.begin(module, "copy properties");
+        try {
+            if (propertyHelper != null) {
+                getLog().debug("Setting properties with prefix: " + propertyPrefix);
+                propertyHelper.setSource(new MavenPropertySource(
+                        mavenProject,
+                        session.getUserProperties(),
+                        session.getRepositorySession().getLocalRepository().getBasedir(),
+                        localRepository::toString,
+                        propertyPrefix,
+                        versionsPropertyName));
+            } else {
+                copyProperties(mavenProject, antProject);
+            }
+        } finally {
+            propertiesPhase.close();
+        }
+    }
+
+    /**
+     * Executes the Ant target, and its dependencies on several threads when more than one is allowed.
+     *
+     * @param antProject The configured Ant project.
+     * @param antTargetName The name of the Ant target.
+     * @param threads The maximum number of targets running at the same time.
+     */
+    private void executeAntTarget(Project antProject, String antTargetName, int threads) {
+        // what the tasks write to System.out and System.err belongs to this execution
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(antProject);
+        try {
+            if (threads > 1) {
+                antProject.setExecutor(new ParallelTargetExecutor(threads));
+                antProject.executeTargets(new Vector<>(Collections.singletonList(antTargetName)));
+            } else {
+                antProject.executeTarget(antTargetName);
+            }
+        } finally {
+            owner.close();
+        }
+    }
+
+    /**
+     * Runs the Ant target in the shared {@link AntWorker}, with the properties and the classpath references the
+     * target gets in the Maven JVM.
+     *
+     * @param antBuildFile The file the Ant target was written to.
+     * @param antTargetName The name of the Ant target.
+     * @param threads The maximum number of targets running at the same time.
+     * @param antLogger The logger of the execution.
+     * @return The properties which were exported to Maven.
+     */
+    private Map<String, String> executeForked(
+            File antBuildFile, String antTargetName, int threads, MavenLogger antLogger)
+            throws IOException, DependencyResolutionRequiredException {
+        AntWorker.Request request = new AntWorker.Request();
+        request.buildFile = antBuildFile.getAbsolutePath();
+        request.targetName = antTargetName;
+        request.baseDir = mavenProject.getBasedir().getAbsolutePath();
+        request.outputLevel = antLogger.getMessageOutputLevel();
+        request.threads = threads;
+        request.defaultNamespace = getTaskPrefix() == null;
+        request.sharedClassLoaders = sharedClassLoaders;
+
+        // the project only holds the properties to send
+        Project properties = new Project();
+        copyProperties(mavenProject, properties);
+        for (Map.Entry<String, Object> property : properties.getProperties().entrySet()) {
+            request.properties.put(property.getKey(), String.valueOf(property.getValue()));
+        }
+
+        ClasspathCache classpaths = getClasspathCache();
+        String path = String.join(
+                File.pathSeparator, classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_COMPILE));
+        request.references.put(MAVEN_REFID_PREFIX + "dependency.classpath", path);
+        request.references.put(MAVEN_REFID_PREFIX + "compile.classpath", path);
+        request.references.put(
+                MAVEN_REFID_PREFIX + "runtime.classpath",
+                String.join(
+                        File.pathSeparator, classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_RUNTIME)));
+        request.references.put(
+                MAVEN_REFID_PREFIX + "test.classpath",
+                String.join(File.pathSeparator, classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_TEST)));
+        request.references.put(
+                MAVEN_REFID_PREFIX + "plugin.classpath",
+                String.join(File.pathSeparator, getPathElements(pluginArtifacts)));
+
+        getLog().info("Executing tasks in the Ant worker");
+        BufferedLogWriter.Buffer logBuffer = bufferedLogging
+                ? getBufferedLogWriter().open(getLog(), "[" + mavenProject.getArtifactId() + "] ")
+                : null;
+        antLogger.setBuffer(logBuffer);
+        Map<String, String> changed;
+        try {
+            changed = getAntWorkerClient().execute(request, antLogger::printPriorityMessage);
+        } finally {
+            if (logBuffer != null) {
+                antLogger.setBuffer(null);
+                logBuffer.close();
+            }
+        }
+        getLog().info("Executed tasks");
+
+        Project result = new Project();
+        for (Map.Entry<String, String> property : changed.entrySet()) {
+            result.setProperty(property.getKey(), property.getValue());
+        }
+        return exportProperties(result, mavenProject, null);
+    }
+
+    private AntWorkerClient getAntWorkerClient() throws IOException {
+        // the worker runs the plugin and Ant, without the Maven classes
+        Set<File> classpath = new LinkedHashSet<>();
+        for (Class<?> type : new Class<?>[] {AntWorker.class, Project.class, Xpp3DomBuilder.class}) {
+            try {
+                classpath.add(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Unable to locate the classes of " + type, e);
+            }
+        }
+        for (Artifact artifact : pluginArtifacts) {
+            if (artifact.getFile() != null) {
+                classpath.add(artifact.getFile());
+            }
+        }
+        // not in the temporary directory, where other users could plant state files
+        File stateDirectory = new File(System.getProperty("user.home"), ".m2/antrun-workers");
+        return new AntWorkerClient(classpath, forkIdleTimeout, stateDirectory);
+    }
+
+    /**
+     * Writes the timing report and logs the slowest tasks, as configured. A problem writing the report does not fail
+     * the build.
+     *
+     * @param timings The timings of the execution.
+     * @param targetName The name of the Ant target.
+     */
+    private void reportTimings(TimingListener timings, String targetName) {
+        if (timingReport) {
+            File reportFile =
+                    new File(mavenProject.getBuild().getDirectory(), "antrun/timings-" + targetName + ".json");
+            try {
+                timings.writeReport(reportFile, targetName);
+            } catch (IOException e) {
+                getLog().warn("Unable to write the timing report " + reportFile + ": " + e.getMessage());
+            }
+        }
+
+        List<TimingListener.Timing> slowest = timings.getSlowestTasks(timingSummary);
+        if (!slowest.isEmpty()) {
+            getLog().info("Slowest Ant tasks:");
+            for (TimingListener.Timing timing : slowest) {
+                getLog().info(String.format(
+                        "%8d ms  %s (%s, line %d) x%d",
+                        TimeUnit.NANOSECONDS.toMillis(timing.getWallTime()),
+                        timing.getName(),
+                        timing.getTarget(),
+                        timing.getLine(),
+                        timing.getCount()));
+            }
         }
     }
 
@@ -310,8 +839,8 @@ public class AntRunMojo extends AbstractMojo {
         }
     }
 
-    private DefaultLogger getConfiguredBuildLogger() {
-        DefaultLogger antLogger = new MavenLogger(getLog());
+    private MavenLogger getConfiguredBuildLogger() {
+        MavenLogger antLogger = new MavenLogger(getLog());
         if (getLog().isDebugEnabled()) {
             antLogger.setMessageOutputLevel(Project.MSG_DEBUG);
         } else if (getLog().isInfoEnabled()) {
@@ -326,26 +855,25 @@ public class AntRunMojo extends AbstractMojo {
         return antLogger;
     }
 
-    private void addAntProjectReferences(MavenProject mavenProject, Project antProject)
-            throws DependencyResolutionRequiredException {
-        Path path = new Path(antProject);
-        path.setPath(String.join(File.pathSeparator, mavenProject.getCompileClasspathElements()));
+    private void addAntProjectReferences(MavenProject mavenProject, Project antProject) {
+        // the classpaths are only computed when a task uses them, and once per project and session
+        ClasspathCache classpaths = getClasspathCache();
+        Path path = new LazyPath(
+                antProject, () -> classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_COMPILE));
 
         /* maven.dependency.classpath it's deprecated as it's equal to maven.compile.classpath */
         antProject.addReference(MAVEN_REFID_PREFIX + "dependency.classpath", path);
         antProject.addReference(MAVEN_REFID_PREFIX + "compile.classpath", path);
 
-        path = new Path(antProject);
-        path.setPath(String.join(File.pathSeparator, mavenProject.getRuntimeClasspathElements()));
+        path = new LazyPath(antProject, () -> classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_RUNTIME));
         antProject.addReference(MAVEN_REFID_PREFIX + "runtime.classpath", path);
 
-        path = new Path(antProject);
-        path.setPath(String.join(File.pathSeparator, mavenProject.getTestClasspathElements()));
+        path = new LazyPath(antProject, () -> classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_TEST));
         antProject.addReference(MAVEN_REFID_PREFIX + "test.classpath", path);
 
         /* set maven.plugin.classpath with plugin dependencies */
-        antProject.addReference(
-                MAVEN_REFID_PREFIX + "plugin.classpath", getPathFromArtifacts(pluginArtifacts, antProject));
+        path = new LazyPath(antProject, () -> getPathElements(pluginArtifacts));
+        antProject.addReference(MAVEN_REFID_PREFIX + "plugin.classpath", path);
 
         antProject.addReference(DEFAULT_MAVEN_PROJECT_REFID, mavenProject);
         antProject.addReference(DEFAULT_MAVEN_PROJECT_REF_REFID, new MavenAntRunProject(mavenProject));
@@ -353,16 +881,29 @@ public class AntRunMojo extends AbstractMojo {
         antProject.addReference(MAVEN_REFID_PREFIX + "local.repository", localRepository);
     }
 
+    private ClasspathCache getClasspathCache() {
+        return SessionCache.get(session, ClasspathCache.class, ClasspathCache::new);
+    }
+
+    private ClassLoaderCache getClassLoaderCache() {
+        ClassLoaderCache classLoaders = SessionCache.get(session, ClassLoaderCache.class, ClassLoaderCache::new);
+        // closes the loaders at the end of the session
+        SessionEndListener.install(session);
+        return classLoaders;
+    }
+
+    private BufferedLogWriter getBufferedLogWriter() {
+        return SessionCache.get(session, BufferedLogWriter.class, BufferedLogWriter::new);
+    }
+
     /**
-     * @param artifacts {@link Artifact} collection.
-     * @param antProject {@link Project}
-     * @return {@link Path}
+     * @param artifacts {@link Artifact} collection, can be null.
+     * @return the paths of the artifact files.
      * @throws DependencyResolutionRequiredException In case of a failure.
      */
-    private Path getPathFromArtifacts(Collection<Artifact> artifacts, Project antProject)
-            throws DependencyResolutionRequiredException {
+    private List<String> getPathElements(Collection<Artifact> artifacts) throws DependencyResolutionRequiredException {
         if (artifacts == null) {
-            return new Path(antProject);
+            return new ArrayList<>();
         }
 
         List<String> list = new ArrayList<>(artifacts.size());
@@ -373,11 +914,7 @@ public class AntRunMojo extends AbstractMojo {
             }
             list.add(file.getPath());
         }
-
-        Path p = new Path(antProject);
-        p.setPath(String.join(File.pathSeparator, list));
-
-        return p;
+        return list;
     }
 
     /**
@@ -451,24 +988,202 @@ public class AntRunMojo extends AbstractMojo {
      * @since 1.7
      */
     public void copyProperties(Project antProject, MavenProject mavenProject) {
+        exportProperties(antProject, mavenProject, null);
+    }
+
+    /**
+     * Copy properties from the Ant project to the Maven project.
+     *
+     * @param antProject not null
+     * @param mavenProject not null
+     * @param propertyChanges The properties changed by the Ant target, or null to copy all the properties.
+     * @return The properties which were copied.
+     */
+    private Map<String, String> exportProperties(
+            Project antProject, MavenProject mavenProject, PropertyChangeRecorder propertyChanges) {
+        Map<String, String> exported = new LinkedHashMap<>();
         if (!exportAntProperties) {
-            return;
+            return exported;
         }
 
         getLog().debug("Propagating Ant properties to Maven properties");
-        Hashtable<String, Object> antProps = antProject.getProperties();
+        Collection<String> keys =
+                propertyChanges != null ? propertyChanges.getNames() : antProject.getProperties().keySet();
         Properties mavenProperties = mavenProject.getProperties();
 
-        for (Map.Entry<String, Object> entry : antProps.entrySet()) {
-            String key = entry.getKey();
+        for (String key : keys) {
+            if (!isExported(key)) {
+                continue;
+            }
+            String value = antProject.getProperty(key);
+            if (value == null) {
+                continue;
+            }
             if (mavenProperties.getProperty(key) != null) {
                 getLog().warn("Ant property '" + key + "=" + mavenProperties.getProperty(key)
                         + "' clashes with an existing Maven property, SKIPPING this Ant property propagation.");
                 continue;
             }
-            // it is safe to call toString directly since the value cannot be null in Hashtable
-            mavenProperties.setProperty(key, entry.getValue().toString());
+            mavenProperties.setProperty(key, value);
+            exported.put(key, value);
         }
+        return exported;
+    }
+
+    private boolean isExported(String key) {
+        return matchesAny(exportAntPropertiesIncludes, key, true)
+                && !matchesAny(exportAntPropertiesExcludes, key, false);
+    }
+
+    private static boolean matchesAny(List<String> patterns, String key, boolean matchesIfEmpty) {
+        if (patterns == null || patterns.isEmpty()) {
+            return matchesIfEmpty;
+        }
+        for (String pattern : patterns) {
+            if (SelectorUtils.match(pattern, key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets again the Maven properties exported by a previous execution of an up to date Ant target.
+     *
+     * @param exportedProperties the properties exported by the previous execution.
+     */
+    private void restoreExportedProperties(Map<String, String> exportedProperties) {
+        Properties mavenProperties = mavenProject.getProperties();
+        for (Map.Entry<String, String> entry : exportedProperties.entrySet()) {
+            if (mavenProperties.getProperty(entry.getKey()) == null) {
+                mavenProperties.setProperty(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Restores the outputs of the Ant target from the build cache, when it holds them.
+     *
+     * @param targetName The name of the Ant target.
+     * @param key The key of the execution in the build cache.
+     * @param upToDateCheck The {@link UpToDateCheck} of the Ant target.
+     * @return Whether the outputs were restored, so that the Ant target must not run.
+     * @throws IOException In case of problems recording the restored execution.
+     */
+    private boolean restoreFromBuildCache(String targetName, String key, UpToDateCheck upToDateCheck)
+            throws IOException {
+        BuildCache.Statistics statistics =
+                SessionCache.get(session, BuildCache.Statistics.class, BuildCache.Statistics::new);
+        Map<String, String> exportedProperties;
+        try {
+            exportedProperties = getBuildCache().restore(key, mavenProject.getBasedir());
+        } catch (IOException e) {
+            // the entry may have been evicted meanwhile, the target writes the outputs again
+            getLog().warn("Unable to restore the outputs of Ant target '" + targetName + "' from the build cache: "
+                    + e.getMessage());
+            exportedProperties = null;
+        }
+        if (exportedProperties == null) {
+            statistics.miss();
+            getLog().info("Ant target '" + targetName + "' not found in the build cache (" + statistics + ")");
+            return false;
+        }
+        statistics.hit();
+        getLog().info("Restored the outputs of Ant target '" + targetName + "' from the build cache (" + statistics
+                + ")");
+        restoreExportedProperties(exportedProperties);
+        upToDateCheck.save(outputs, exportedProperties);
+        return true;
+    }
+
+    /**
+     * Records a successful execution of the Ant target, and stores its outputs in the build cache when it is enabled.
+     * A problem storing the outputs does not fail the build.
+     *
+     * @param upToDateCheck The {@link UpToDateCheck} of the Ant target.
+     * @param buildCacheKey The key of the execution in the build cache, or null if it is disabled.
+     * @param exportedProperties The properties which were exported to Maven.
+     * @throws IOException In case of problems recording the execution.
+     */
+    private void recordExecution(
+            UpToDateCheck upToDateCheck, String buildCacheKey, Map<String, String> exportedProperties)
+            throws IOException {
+        upToDateCheck.save(outputs, exportedProperties);
+        if (buildCacheKey == null) {
+            return;
+        }
+        File basedir = mavenProject.getBasedir();
+        try {
+            if (!getBuildCache()
+                    .store(buildCacheKey, basedir, UpToDateCheck.scan(basedir, outputs), exportedProperties)) {
+                getLog().debug("The outputs of the Ant target are not stored in the build cache, since some of them"
+                        + " are outside of " + basedir);
+            }
+        } catch (IOException e) {
+            getLog().warn("Unable to store the outputs of the Ant target in the build cache: " + e.getMessage());
+        }
+    }
+
+    private BuildCache getBuildCache() {
+        return new BuildCache(buildCacheDirectory, buildCacheMaxSize * 1024 * 1024);
+    }
+
+    /**
+     * The key of the execution in the build cache: the fingerprint of the target, its inputs, the Maven properties it
+     * can use and the classpaths, and the declared outputs.
+     *
+     * @param upToDateCheck The {@link UpToDateCheck} of the Ant target.
+     * @return The key.
+     */
+    private String getBuildCacheKey(UpToDateCheck upToDateCheck) {
+        MessageDigest digest = Digests.newDigest();
+        List<String> values = new ArrayList<>();
+        values.add(upToDateCheck.getInputsFingerprint());
+        values.add(mavenProject.getId());
+        if (outputs != null) {
+            for (FileSet output : outputs) {
+                values.add(output.getDirectory() + output.getIncludes() + output.getExcludes());
+            }
+        }
+        for (String value : values) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return Digests.toHex(digest.digest());
+    }
+
+    /**
+     * Fingerprint everything the outcome of the Ant target depends on: the target itself, the parameters that change
+     * how it is run, the Maven properties and classpaths and the content of the declared inputs.
+     *
+     * @param targetName The name of the Ant target.
+     * @param antTargets The configurations of the Ant targets.
+     * @return the {@link UpToDateCheck} for the Ant target.
+     * @throws IOException In case of problems reading the inputs.
+     * @throws DependencyResolutionRequiredException In case of a failure.
+     */
+    private UpToDateCheck createUpToDateCheck(String targetName, List<PlexusConfiguration> antTargets)
+            throws IOException, DependencyResolutionRequiredException {
+        File storeFile =
+                new File(mavenProject.getBuild().getDirectory(), "antrun/fingerprint-" + targetName + ".properties");
+        UpToDateCheck check = new UpToDateCheck(mavenProject.getBasedir(), storeFile);
+        for (PlexusConfiguration antTarget : antTargets) {
+            check.update(antTarget);
+        }
+        check.update("customTaskPrefix", customTaskPrefix);
+        check.update("propertyPrefix", propertyPrefix);
+        check.update("versionsPropertyName", versionsPropertyName);
+        check.update("exportAntProperties", String.valueOf(exportAntProperties));
+        check.update("exportAntPropertiesIncludes", String.valueOf(exportAntPropertiesIncludes));
+        check.update("exportAntPropertiesExcludes", String.valueOf(exportAntPropertiesExcludes));
+        check.updateProperties(mavenProject.getProperties(), session.getUserProperties());
+        ClasspathCache classpaths = getClasspathCache();
+        check.updateClasspath("compile", classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_COMPILE));
+        check.updateClasspath("runtime", classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_RUNTIME));
+        check.updateClasspath("test", classpaths.getClasspathElements(mavenProject, Artifact.SCOPE_TEST));
+        check.updateClasspath("plugin", getPathElements(pluginArtifacts));
+        check.updateInputs(inputs);
+        return check;
     }
 
     /**
@@ -476,47 +1191,84 @@ public class AntRunMojo extends AbstractMojo {
      */
     public void initMavenTasks(Project antProject) {
         getLog().debug("Initializing Maven Ant Tasks");
-        Typedef typedef = new Typedef();
-        typedef.setProject(antProject);
-        typedef.setResource(ANTLIB);
-
-        if (getTaskPrefix() != null) {
-            typedef.setURI(TASK_URI);
+        // without a prefix, the tasks are also available without a namespace, unless they would replace an Ant task
+        for (String name : MavenTaskDefinitions.define(antProject, getTaskPrefix() == null)) {
+            getLog().debug("The Maven Ant task " + name + " is only available in the " + TASK_URI + " namespace");
         }
-        typedef.execute();
     }
 
     /**
-     * Write the Ant target and surrounding tags to a temporary file
+     * @param targetName The name of the Ant target.
+     * @return The file the Ant target is written to.
+     */
+    private File getBuildFile(String targetName) {
+        // The fileName should probably use the plugin executionId instead of the targetName
+        return new File(mavenProject.getBuild().getDirectory(), "antrun/build-" + targetName + ".xml");
+    }
+
+    /**
+     * Write the Ant targets and surrounding tags to a file. The file is left untouched when its content is unchanged.
      *
      * @throws IOException problem with write to file
      */
-    private File writeTargetToProjectFile(String targetName) throws IOException {
-        // The fileName should probably use the plugin executionId instead of the targetName
-        File buildFile = new File(mavenProject.getBuild().getDirectory(), "antrun/build-" + targetName + ".xml");
+    private void writeTargetToProjectFile(File buildFile, List<PlexusConfiguration> antTargets, String targetName)
+            throws IOException {
         // noinspection ResultOfMethodCallIgnored
         buildFile.getParentFile().mkdirs();
 
         AntrunXmlPlexusConfigurationWriter xmlWriter = new AntrunXmlPlexusConfigurationWriter();
+        xmlWriter.write(antTargets, buildFile, "", targetName);
+    }
 
-        String taskPrefix = getTaskPrefix();
-        if (taskPrefix != null) {
-            // replace namespace as Ant expects it to be
-            target.setAttribute("xmlns:" + taskPrefix, TASK_URI);
+    /**
+     * @param antTargetName The name of the execution, used for the target depending on all the others.
+     * @return The configured <code>targets</code>, followed by the target depending on all of them.
+     * @throws MojoExecutionException If the configuration is invalid.
+     */
+    private List<PlexusConfiguration> getAntTargets(String antTargetName) throws MojoExecutionException {
+        List<PlexusConfiguration> antTargets = new ArrayList<>(getConfiguredTargets());
+        List<String> names = new ArrayList<>(antTargets.size());
+        for (PlexusConfiguration antTarget : antTargets) {
+            if (!"target".equals(antTarget.getName())) {
+                throw new MojoExecutionException(
+                        "Unexpected element <" + antTarget.getName() + "> in targets, only <target> is allowed");
+            }
+            String name = antTarget.getAttribute("name");
+            if (antTargetName.equals(name)) {
+                throw new MojoExecutionException("The target name '" + name
+                        + "' is already used by the targets element, set its name attribute to another value");
+            }
+            names.add(name);
         }
 
-        xmlWriter.write(target, buildFile, "", targetName);
+        PlexusConfiguration mainTarget = new XmlPlexusConfiguration("target");
+        mainTarget.setAttribute("name", antTargetName);
+        if (!names.isEmpty()) {
+            mainTarget.setAttribute("depends", String.join(",", names));
+        }
+        antTargets.add(mainTarget);
+        return antTargets;
+    }
 
-        return buildFile;
+    /**
+     * @return The configured <code>target</code>, or the configured <code>targets</code>.
+     */
+    private List<PlexusConfiguration> getConfiguredTargets() {
+        if (targets != null) {
+            return Arrays.asList(targets.getChildren());
+        }
+        return target != null ? Collections.singletonList(target) : Collections.emptyList();
     }
 
     private String getTaskPrefix() {
         String taskPrefix = this.customTaskPrefix;
         if (taskPrefix == null) {
-            for (String name : target.getAttributeNames()) {
-                if (name.startsWith("xmlns:") && "http://maven.apache.org/ANTRUN".equals(target.getAttribute(name))) {
-                    taskPrefix = name.substring("xmlns:".length());
-                    break;
+            for (PlexusConfiguration antTarget : getConfiguredTargets()) {
+                for (String name : antTarget.getAttributeNames()) {
+                    if (name.startsWith("xmlns:")
+                            && "http://maven.apache.org/ANTRUN".equals(antTarget.getAttribute(name))) {
+                        return name.substring("xmlns:".length());
+                    }
                 }
             }
         }
@@ -525,10 +1277,15 @@ public class AntRunMojo extends AbstractMojo {
 
     /**
      * @param buildException not null
+     * @param antBuildFile the file the Ant target is written to, when it is written.
+     * @param projectBuilder the builder which configured the Ant project from the Ant target.
      * @return the fragment XML part where the buildException occurs.
      * @since 1.7
      */
-    private String findFragment(BuildException buildException) {
+    private String findFragment(
+            BuildException buildException,
+            File antBuildFile,
+            AntrunPlexusConfigurationProjectBuilder projectBuilder) {
         if (buildException == null
                 || buildException.getLocation() == null
                 || buildException.getLocation().getFileName() == null) {
@@ -536,16 +1293,35 @@ public class AntRunMojo extends AbstractMojo {
         }
 
         File antFile = new File(buildException.getLocation().getFileName());
+        int lineNumber = buildException.getLocation().getLineNumber();
+        String line;
+        if (antFile.equals(antBuildFile.getAbsoluteFile())) {
+            // the location was created from the plugin configuration, which the file may not reflect
+            line = projectBuilder.getStartTag(lineNumber);
+        } else {
+            line = readLine(antFile, lineNumber);
+        }
+        if (line == null) {
+            return null;
+        }
+
+        String fragment = "around Ant part ..." + line.trim() + "... @ " + lineNumber + ":"
+                + buildException.getLocation().getColumnNumber() + " in " + antFile.getAbsolutePath();
         if (!antFile.exists()) {
+            fragment += " (set maven.antrun.writeBuildFile to write this file)";
+        }
+        return fragment;
+    }
+
+    private String readLine(File file, int lineNumber) {
+        if (!file.exists()) {
             return null;
         }
 
-        try (LineNumberReader reader = new LineNumberReader(ReaderFactory.newXmlReader(antFile))) {
+        try (LineNumberReader reader = new LineNumberReader(ReaderFactory.newXmlReader(file))) {
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                if (reader.getLineNumber() == buildException.getLocation().getLineNumber()) {
-                    return "around Ant part ..." + line.trim() + "... @ "
-                            + buildException.getLocation().getLineNumber() + ":"
-                            + buildException.getLocation().getColumnNumber() + " in " + antFile.getAbsolutePath();
+                if (reader.getLineNumber() == lineNumber) {
+                    return line;
                 }
             }
         } catch (Exception e) {
@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.Location;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Long-lived JVM running the Ant targets of the forked executions, so that they neither load their classes in the
+ * Maven JVM nor pay the startup of a new JVM. The worker listens on a loopback port, which it writes with a secret
+ * token to its state file, and runs each connection on its own thread. It stops once no execution has connected for
+ * the idle timeout.
+ * <p>
+ * An execution sends a {@link Request}. The worker answers with the messages of the build, each prefixed with
+ * {@link #MESSAGE}, followed by either {@link #SUCCESS} and the changed properties, or {@link #FAILURE} and the error
+ * with its location.
+ */
+public final class AntWorker {
+
+    static final int MESSAGE = 'M';
+
+    static final int SUCCESS = 'S';
+
+    static final int FAILURE = 'F';
+
+    static final String PORT = "port";
+
+    static final String TOKEN = "token";
+
+    /**
+     * The longest string read from a connection, in bytes: the classpaths are the longest ones.
+     */
+    static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * The most entries of a map read from a connection.
+     */
+    static final int MAX_MAP_SIZE = 1024 * 1024;
+
+    /**
+     * The loaders shared by the executions which ask for it.
+     */
+    private static final ClassLoaderCache CLASS_LOADERS = new ClassLoaderCache();
+
+    private final File stateFile;
+
+    private final String token = UUID.randomUUID().toString();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private AntWorker(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * @param args The state file and the idle timeout, in seconds.
+     * @throws IOException If the worker could not listen.
+     */
+    public static void main(String[] args) throws IOException {
+        new AntWorker(new File(args[0])).serve(TimeUnit.SECONDS.toMillis(Long.parseLong(args[1])));
+        System.exit(0);
+    }
+
+    private void serve(long idleMillis) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout((int) Math.min(idleMillis, Integer.MAX_VALUE));
+            writeState(server.getLocalPort());
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    if (running.get() == 0) {
+                        break;
+                    }
+                    continue;
+                }
+                running.incrementAndGet();
+                Thread thread = new Thread(() -> handle(socket), "antrun-worker-" + socket.getPort());
+                thread.start();
+            }
+        } finally {
+            Files.deleteIfExists(stateFile.toPath());
+        }
+    }
+
+    private void writeState(int port) throws IOException {
+        Properties state = new Properties();
+        state.setProperty(PORT, String.valueOf(port));
+        state.setProperty(TOKEN, token);
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        Files.deleteIfExists(tmp.toPath());
+        Files.createFile(tmp.toPath());
+        // only the owner may read the token
+        tmp.setReadable(false, false);
+        tmp.setReadable(true, true);
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            state.store(out, null);
+        }
+        Files.move(tmp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            // nothing else is read from a connection which does not know the token
+            if (!MessageDigest.isEqual(
+                    token.getBytes(StandardCharsets.UTF_8), in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+                return;
+            }
+            Request request = Request.readFrom(in);
+            Map<String, String> changed;
+            try {
+                changed = execute(request, out);
+            } catch (Throwable e) {
+                // including the errors, such as a NoClassDefFoundError of a task
+                synchronized (out) {
+                    out.writeByte(FAILURE);
+                    writeFailure(out, e);
+                    out.flush();
+                }
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(SUCCESS);
+                writeMap(out, changed);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the execution went away
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static Map<String, String> execute(Request request, DataOutputStream out) {
+        SharedClassLoaderProject sharedLoaderProject =
+                request.sharedClassLoaders ? new SharedClassLoaderProject(CLASS_LOADERS) : null;
+        try {
+            return execute(request, out, sharedLoaderProject != null ? sharedLoaderProject : new Project());
+        } finally {
+            if (sharedLoaderProject != null) {
+                sharedLoaderProject.releaseClassLoaders();
+            }
+        }
+    }
+
+    private static Map<String, String> execute(Request request, DataOutputStream out, Project project) {
+        StreamingLogger logger = new StreamingLogger(out, request.threads > 1);
+        logger.setMessageOutputLevel(request.outputLevel);
+        project.addBuildListener(logger);
+        ProjectTemplate.init(project);
+        if (project instanceof SharedClassLoaderProject) {
+            ((SharedClassLoaderProject) project).enableLoaderReuse();
+        }
+        project.setBaseDir(new File(request.baseDir));
+        for (Map.Entry<String, String> reference : request.references.entrySet()) {
+            project.addReference(reference.getKey(), new Path(project, reference.getValue()));
+        }
+        for (Map.Entry<String, String> property : request.properties.entrySet()) {
+            project.setProperty(property.getKey(), property.getValue());
+        }
+        MavenTaskDefinitions.define(project, request.defaultNamespace);
+        PropertyChangeRecorder propertyChanges = PropertyChangeRecorder.install(project);
+
+        ProjectHelper.configureProject(project, new File(request.buildFile));
+        // the executions run at the same time in the worker
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(project);
+        try {
+            if (request.threads > 1) {
+                project.setExecutor(new ParallelTargetExecutor(request.threads));
+                project.executeTargets(new Vector<>(Collections.singletonList(request.targetName)));
+            } else {
+                project.executeTarget(request.targetName);
+            }
+        } finally {
+            owner.close();
+        }
+
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (String name : propertyChanges.getNames()) {
+            String value = project.getProperty(name);
+            if (value != null) {
+                changed.put(name, value);
+            }
+        }
+        return changed;
+    }
+
+    static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_MAP_SIZE) {
+            throw new IOException("Invalid map size " + size);
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    /**
+     * Writes the message of a failure, and its location in the build file so that the execution can show it.
+     */
+    static void writeFailure(DataOutputStream out, Throwable failure) throws IOException {
+        Location location = Location.UNKNOWN_LOCATION;
+        if (failure instanceof BuildException) {
+            writeString(out, failure.getMessage() != null ? failure.getMessage() : failure.toString());
+            if (((BuildException) failure).getLocation() != null) {
+                location = ((BuildException) failure).getLocation();
+            }
+        } else {
+            writeString(out, failure.toString());
+        }
+        writeString(out, location.getFileName() != null ? location.getFileName() : "");
+        out.writeInt(location.getLineNumber());
+        out.writeInt(location.getColumnNumber());
+    }
+
+    static BuildException readFailure(DataInputStream in) throws IOException {
+        String message = readString(in);
+        String fileName = readString(in);
+        int lineNumber = in.readInt();
+        int columnNumber = in.readInt();
+        Location location =
+                fileName.isEmpty() ? Location.UNKNOWN_LOCATION : new Location(fileName, lineNumber, columnNumber);
+        return new BuildException(message, location);
+    }
+
+    /**
+     * Writes a string of any length, unlike {@link DataOutputStream#writeUTF(String)}.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * What an execution asks the worker to run.
+     */
+    static final class Request {
+        String token;
+
+        String buildFile;
+
+        String targetName;
+
+        String baseDir;
+
+        int outputLevel;
+
+        int threads;
+
+        boolean defaultNamespace;
+
+        boolean sharedClassLoaders;
+
+        Map<String, String> properties = new LinkedHashMap<>();
+
+        /**
+         * The paths to define as references, such as <code>maven.compile.classpath</code>.
+         */
+        Map<String, String> references = new LinkedHashMap<>();
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(token);
+            writeString(out, buildFile);
+            writeString(out, targetName);
+            writeString(out, baseDir);
+            out.writeInt(outputLevel);
+            out.writeInt(threads);
+            out.writeBoolean(defaultNamespace);
+            out.writeBoolean(sharedClassLoaders);
+            writeMap(out, properties);
+            writeMap(out, references);
+        }
+
+        /**
+         * Reads the request following its token, which the worker checks first.
+         */
+        static Request readFrom(DataInputStream in) throws IOException {
+            Request request = new Request();
+            request.buildFile = readString(in);
+            request.targetName = readString(in);
+            request.baseDir = readString(in);
+            request.outputLevel = in.readInt();
+            request.threads = in.readInt();
+            request.defaultNamespace = in.readBoolean();
+            request.sharedClassLoaders = in.readBoolean();
+            request.properties = readMap(in);
+            request.references = readMap(in);
+            return request;
+        }
+    }
+
+    /**
+     * Sends the messages formatted as by {@link MavenLogger} to the execution.
+     */
+    private static final class StreamingLogger extends DefaultLogger {
+
+        private final DataOutputStream out;
+
+        private final boolean targetPrefix;
+
+        private final ThreadLocal<String> messageTarget = new ThreadLocal<>();
+
+        StreamingLogger(DataOutputStream out, boolean targetPrefix) {
+            this.out = out;
+            this.targetPrefix = targetPrefix;
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            if (!targetPrefix) {
+                super.targetStarted(event);
+            }
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            Target target = event.getTarget();
+            if (targetPrefix && target != null && !target.getName().isEmpty()) {
+                messageTarget.set(target.getName());
+            }
+            try {
+                super.messageLogged(event);
+            } finally {
+                messageTarget.remove();
+            }
+        }
+
+        @Override
+        protected void printMessage(String message, PrintStream stream, int priority) {
+            String target = messageTarget.get();
+            // the tasks of parallel targets log at the same time
+            synchronized (out) {
+                try {
+                    out.writeByte(MESSAGE);
+                    out.writeInt(priority);
+                    writeString(out, target != null ? "[" + target + "] " + message : message);
+                    out.flush();
+                } catch (IOException e) {
+                    throw new BuildException("The execution went away", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Connects the forked executions to an {@link AntWorker}, which is started when no worker with the same JVM and
+ * classpath is running. The workers are shared by all the Maven builds of the user through their state files, in a
+ * directory only the user can access. As the state files tell where to send the properties of the build, a state
+ * file is only used when the user owns both the file and its directory.
+ */
+class AntWorkerClient {
+
+    /**
+     * The time a new worker has to write its state file.
+     */
+    private static final long START_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Held while a worker is started: the file lock only keeps the other JVMs out.
+     */
+    private static final Object STARTING = new Object();
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * The user running the build, as the owner of the files it creates.
+     */
+    private static volatile UserPrincipal currentUser;
+
+    /**
+     * Receives the messages of the build.
+     */
+    interface MessageHandler {
+        void messageLogged(String message, int priority);
+    }
+
+    private final String java;
+
+    private final String classpath;
+
+    private final long idleTimeout;
+
+    private final File stateDirectory;
+
+    /**
+     * @param classpath The classpath of the worker, holding the plugin and Ant.
+     * @param idleTimeout The time after which an unused worker stops, in seconds.
+     * @param stateDirectory The directory of the state files of the workers.
+     */
+    AntWorkerClient(Collection<File> classpath, long idleTimeout, File stateDirectory) {
+        this.java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        List<String> paths = new ArrayList<>();
+        for (File file : classpath) {
+            paths.add(file.getPath());
+        }
+        this.classpath = String.join(File.pathSeparator, paths);
+        this.idleTimeout = idleTimeout;
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * Runs an Ant target in the worker.
+     *
+     * @param request The request, without its token.
+     * @param handler Receives the messages of the build.
+     * @return The properties created or changed by the target.
+     * @throws IOException If the worker could not be reached.
+     * @throws BuildException If the target failed.
+     */
+    Map<String, String> execute(AntWorker.Request request, MessageHandler handler) throws IOException {
+        String key = getKey();
+        File stateFile = new File(stateDirectory, key + ".properties");
+        Socket socket = connect(stateFile, request);
+        if (socket == null) {
+            socket = startAndConnect(key, stateFile, request);
+        }
+
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()))) {
+            while (true) {
+                int type = in.read();
+                if (type == AntWorker.MESSAGE) {
+                    int priority = in.readInt();
+                    handler.messageLogged(AntWorker.readString(in), priority);
+                } else if (type == AntWorker.SUCCESS) {
+                    return AntWorker.readMap(in);
+                } else if (type == AntWorker.FAILURE) {
+                    throw AntWorker.readFailure(in);
+                } else {
+                    throw new IOException("The Ant worker closed the connection");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The connection sending the request to the running worker, or null if there is none.
+     */
+    private Socket connect(File stateFile, AntWorker.Request request) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        Properties state = new Properties();
+        try {
+            if (!isOwnedByCurrentUser(stateDirectory.toPath()) || !isOwnedByCurrentUser(stateFile.toPath())) {
+                // another user may have planted it
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+            state.load(in);
+            Socket socket =
+                    new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(state.getProperty(AntWorker.PORT)));
+            try {
+                request.token = state.getProperty(AntWorker.TOKEN);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                request.writeTo(out);
+                out.flush();
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            // the worker stopped, or is stopping
+            return null;
+        }
+    }
+
+    private Socket startAndConnect(String key, File stateFile, AntWorker.Request request) throws IOException {
+        synchronized (STARTING) {
+            return startAndConnectLocked(key, stateFile, request);
+        }
+    }
+
+    private Socket startAndConnectLocked(String key, File stateFile, AntWorker.Request request) throws IOException {
+        createStateDirectory();
+        // only one build starts the worker, the others wait for it
+        try (FileChannel channel = FileChannel.open(
+                new File(stateDirectory, key + ".lock").toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                Socket socket = connect(stateFile, request);
+                if (socket != null) {
+                    return socket;
+                }
+                Files.deleteIfExists(stateFile.toPath());
+
+                ProcessBuilder builder = new ProcessBuilder(
+                        java,
+                        "-cp",
+                        classpath,
+                        AntWorker.class.getName(),
+                        stateFile.getPath(),
+                        String.valueOf(idleTimeout));
+                File logFile = new File(stateDirectory, key + ".log");
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(logFile);
+                Process process = builder.start();
+
+                long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+                while (System.currentTimeMillis() < deadline) {
+                    socket = connect(stateFile, request);
+                    if (socket != null) {
+                        return socket;
+                    }
+                    if (!process.isAlive()) {
+                        break;
+                    }
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                process.destroy();
+                throw new IOException("The Ant worker did not start, see " + logFile);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Creates the directory of the state files, which only the user can access.
+     *
+     * @throws IOException If the directory could not be created, or is owned by another user.
+     */
+    private void createStateDirectory() throws IOException {
+        Path directory = stateDirectory.toPath();
+        Files.createDirectories(directory.toAbsolutePath().getParent());
+        PosixFileAttributeView posix = Files.getFileAttributeView(directory.getParent(), PosixFileAttributeView.class);
+        try {
+            if (posix != null) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectory(directory);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // created by an earlier build, checked below
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || !isOwnedByCurrentUser(directory)) {
+            throw new IOException(
+                    "The directory of the Ant workers " + directory + " is not owned by the current user");
+        }
+        if (posix != null) {
+            // the umask may have widened the permissions
+            Files.setPosixFilePermissions(directory, OWNER_ONLY);
+        }
+    }
+
+    private static boolean isOwnedByCurrentUser(Path path) throws IOException {
+        return Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).equals(getCurrentUser());
+    }
+
+    private static UserPrincipal getCurrentUser() throws IOException {
+        UserPrincipal user = currentUser;
+        if (user == null) {
+            Path probe = Files.createTempFile("antrun-owner", ".tmp");
+            try {
+                user = Files.getOwner(probe);
+            } finally {
+                Files.deleteIfExists(probe);
+            }
+            currentUser = user;
+        }
+        return user;
+    }
+
+    /**
+     * @return The key of the workers running with the same JVM and classpath. A rebuilt jar of the classpath changes
+     *         the key, so that a worker which loaded the previous classes is not used.
+     */
+    private String getKey() {
+        MessageDigest digest = Digests.newDigest();
+        digest.update(java.getBytes(StandardCharsets.UTF_8));
+        for (String element : classpath.split(File.pathSeparator)) {
+            File file = new File(element);
+            digest.update((byte) 0);
+            digest.update((file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return "worker-" + Digests.toHex(digest.digest()).substring(0, 16);
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Location;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.ProjectHelperRepository;
+import org.apache.tools.ant.RuntimeConfigurable;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.UnknownElement;
+import org.apache.tools.ant.types.resources.FileResource;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.util.xml.Xpp3DomUtils;
+
+/**
+ * Configure an Ant project directly from the Ant target Plexus configuration, with the same result as parsing the XML
+ * file written by {@link AntrunXmlPlexusConfigurationWriter}. Every element gets the location it has in that file, so
+ * that errors can be reported against it even when the file is not written.
+ */
+class AntrunPlexusConfigurationProjectBuilder {
+
+    private static final Set<String> EXCLUDED_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            Xpp3DomUtils.CHILDREN_COMBINATION_MODE_ATTRIBUTE, Xpp3DomUtils.SELF_COMBINATION_MODE_ATTRIBUTE));
+
+    private static final Set<String> TARGET_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "name", "depends", "if", "unless", "id", "description", "extensionOf", "onMissingExtensionPoint"));
+
+    private static final String PROJECT_NAME = "maven-antrun-";
+
+    private static final String XMLNS = "xmlns";
+
+    private static final String XMLNS_PREFIX = XMLNS + ":";
+
+    /**
+     * The name of the attribute holding a component type name, which may be prefixed.
+     */
+    private static final String ANT_TYPE = "ant-type";
+
+    private final File buildFile;
+
+    private final String fileName;
+
+    private final String customTaskPrefix;
+
+    private final Deque<Map<String, String>> namespaces = new ArrayDeque<>();
+
+    /**
+     * The start tag of the elements, by line number, used to describe the location of an error.
+     */
+    private final Map<Integer, String> startTags = new HashMap<>();
+
+    /**
+     * The last line used in the equivalent XML file: the XML declaration is on the first line and the project element
+     * on the second one.
+     */
+    private int line = 2;
+
+    /**
+     * @param buildFile The XML file the Ant target is written to, when it is written.
+     * @param customTaskPrefix Prefix to use for the custom Ant tasks. Empty if no prefix should be used.
+     */
+    AntrunPlexusConfigurationProjectBuilder(File buildFile, String customTaskPrefix) {
+        this.buildFile = buildFile;
+        this.fileName = buildFile.getAbsolutePath();
+        this.customTaskPrefix = customTaskPrefix;
+        Map<String, String> projectNamespaces = new HashMap<>();
+        if (!customTaskPrefix.isEmpty()) {
+            projectNamespaces.put(customTaskPrefix, AntRunMojo.TASK_URI);
+        }
+        namespaces.push(projectNamespaces);
+    }
+
+    /**
+     * Configures the Ant project, as {@link ProjectHelper#configureProject(Project, File)} does with the file written
+     * by {@link AntrunXmlPlexusConfigurationWriter}.
+     *
+     * @param antProject The {@link Project} to configure.
+     * @param configuration The Plexus configuration of the Ant target.
+     * @param antTargetName Name of the default Ant target.
+     */
+    void configureProject(Project antProject, PlexusConfiguration configuration, String antTargetName) {
+        configureProject(antProject, Collections.singletonList(configuration), antTargetName);
+    }
+
+    /**
+     * Configures the Ant project with several targets, as {@link ProjectHelper#configureProject(Project, File)} does
+     * with the file written by {@link AntrunXmlPlexusConfigurationWriter}.
+     *
+     * @param antProject The {@link Project} to configure.
+     * @param configurations The Plexus configurations of the Ant targets, in the order of the file.
+     * @param antTargetName Name of the default Ant target.
+     */
+    void configureProject(Project antProject, List<PlexusConfiguration> configurations, String antTargetName) {
+        ProjectHelper projectHelper =
+                ProjectHelperRepository.getInstance().getProjectHelperForBuildFile(new FileResource(buildFile));
+        antProject.addReference(MagicNames.REFID_PROJECT_HELPER, projectHelper);
+        antProject.setName(PROJECT_NAME);
+        antProject.addReference(PROJECT_NAME, antProject);
+        antProject.setUserProperty(MagicNames.ANT_FILE + "." + PROJECT_NAME, fileName);
+        antProject.setUserProperty(MagicNames.ANT_FILE_TYPE + "." + PROJECT_NAME, MagicNames.ANT_FILE_TYPE_FILE);
+        antProject.setDefault(antTargetName);
+
+        StringBuilder projectTag = new StringBuilder("<project");
+        if (!customTaskPrefix.isEmpty()) {
+            projectTag.append(' ').append(XMLNS_PREFIX).append(customTaskPrefix).append("=\"");
+            escape(AntRunMojo.TASK_URI, projectTag);
+            projectTag.append('"');
+        }
+        projectTag.append(" name=\"").append(PROJECT_NAME).append("\" default=\"");
+        escape(antTargetName, projectTag);
+        projectTag.append("\">");
+        startTags.put(line, projectTag.toString());
+
+        // the implicit target is located at the project element
+        Target implicitTarget = new Target();
+        implicitTarget.setProject(antProject);
+        implicitTarget.setName("");
+        implicitTarget.setLocation(new Location(fileName, line, projectTag.length() + 1));
+        antProject.addTarget("", implicitTarget);
+
+        for (PlexusConfiguration configuration : configurations) {
+            addTarget(antProject, projectHelper, configuration);
+        }
+        projectHelper.resolveExtensionOfAttributes(antProject);
+    }
+
+    /**
+     * @param lineNumber A line number of a location created by this builder.
+     * @return The start tag of the element on that line in the equivalent XML file, or null if there is none.
+     */
+    String getStartTag(int lineNumber) {
+        return startTags.get(lineNumber);
+    }
+
+    private void addTarget(Project antProject, ProjectHelper projectHelper, PlexusConfiguration c) {
+        pushNamespaces(c);
+
+        Target target = new Target();
+        target.setProject(antProject);
+        target.setLocation(nextLocation(c, "  "));
+        for (String name : c.getAttributeNames()) {
+            if (isIgnoredAttribute(name)) {
+                continue;
+            }
+            if (!TARGET_ATTRIBUTES.contains(name)) {
+                throw new BuildException("Unexpected attribute \"" + name + "\"", target.getLocation());
+            }
+        }
+
+        String name = c.getAttribute("name");
+        if (name == null || name.isEmpty()) {
+            throw new BuildException("name attribute must not be empty", target.getLocation());
+        }
+        target.setName(name);
+        target.setIf(c.getAttribute("if"));
+        target.setUnless(c.getAttribute("unless"));
+        target.setDescription(c.getAttribute("description"));
+        String depends = c.getAttribute("depends");
+        if (depends != null && !depends.isEmpty()) {
+            target.setDepends(depends);
+        }
+        String id = c.getAttribute("id");
+        if (id != null && !id.isEmpty()) {
+            antProject.addReference(id, target);
+        }
+        antProject.addTarget(name, target);
+        addExtensionOf(projectHelper, target, c);
+
+        addChildren(antProject, target, null, c, "    ");
+        namespaces.pop();
+    }
+
+    /**
+     * Records the extension points the target extends, which are resolved once all the targets are added, as
+     * {@link ProjectHelper} does.
+     */
+    private static void addExtensionOf(ProjectHelper projectHelper, Target target, PlexusConfiguration c) {
+        String extensionOf = c.getAttribute("extensionOf");
+        String onMissingExtensionPoint = c.getAttribute("onMissingExtensionPoint");
+        ProjectHelper.OnMissingExtensionPoint missing = ProjectHelper.OnMissingExtensionPoint.FAIL;
+        if (onMissingExtensionPoint != null) {
+            try {
+                missing = ProjectHelper.OnMissingExtensionPoint.valueOf(onMissingExtensionPoint);
+            } catch (IllegalArgumentException e) {
+                throw new BuildException("Invalid onMissingExtensionPoint " + onMissingExtensionPoint);
+            }
+            if (extensionOf == null) {
+                throw new BuildException(
+                        "onMissingExtensionPoint attribute cannot be specified unless extensionOf is specified",
+                        target.getLocation());
+            }
+        }
+        if (extensionOf == null) {
+            return;
+        }
+
+        for (String extensionPoint : Target.parseDepends(extensionOf, target.getName(), "extensionOf")) {
+            projectHelper.getExtensionStack().add(new String[] {extensionPoint, target.getName(), missing.name()});
+        }
+    }
+
+    private void addChildren(
+            Project antProject, Target target, UnknownElement parent, PlexusConfiguration c, String indent) {
+        int count = c.getChildCount();
+        if (count == 0) {
+            String value = c.getValue();
+            if (value != null) {
+                if (parent != null) {
+                    parent.getWrapper().addText(value);
+                }
+                line += countLines(value);
+            }
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            PlexusConfiguration child = c.getChild(i);
+            pushNamespaces(child);
+            UnknownElement element = createElement(antProject, target, child, indent);
+            if (parent == null) {
+                target.addTask(element);
+            } else {
+                parent.addChild(element);
+                parent.getWrapper().addChild(element.getWrapper());
+            }
+            addChildren(antProject, target, element, child, indent + "  ");
+            namespaces.pop();
+        }
+        // the end tag of an element with children is on its own line
+        line++;
+    }
+
+    private UnknownElement createElement(Project antProject, Target target, PlexusConfiguration c, String indent) {
+        String qname = c.getName();
+        int index = qname.indexOf(':');
+        String tag = index < 0 ? qname : qname.substring(index + 1);
+        String uri = getNamespace(index < 0 ? "" : qname.substring(0, index));
+        Location location = nextLocation(c, indent);
+        if (uri == null) {
+            throw new BuildException(
+                    "The prefix \"" + qname.substring(0, index) + "\" for element \"" + qname + "\" is not bound.",
+                    location);
+        }
+
+        UnknownElement element = new UnknownElement(tag);
+        element.setProject(antProject);
+        element.setNamespace(uri);
+        element.setQName(qname);
+        element.setTaskType(ProjectHelper.genComponentName(uri, tag));
+        element.setTaskName(qname);
+        element.setLocation(location);
+        element.setOwningTarget(target);
+
+        String id = c.getAttribute("id");
+        if (id != null) {
+            antProject.addIdReference(id, element);
+        }
+
+        RuntimeConfigurable wrapper = new RuntimeConfigurable(element, element.getTaskName());
+        for (String name : c.getAttributeNames()) {
+            if (isIgnoredAttribute(name)) {
+                continue;
+            }
+            String value = c.getAttribute(name);
+            int attributeIndex = name.indexOf(':');
+            if (attributeIndex >= 0) {
+                String attributeUri = getNamespace(name.substring(0, attributeIndex));
+                if (attributeUri != null && !attributeUri.isEmpty() && !attributeUri.equals(uri)) {
+                    name = attributeUri + ":" + name;
+                } else {
+                    name = name.substring(attributeIndex + 1);
+                }
+            }
+            if (ANT_TYPE.equals(name)) {
+                int valueIndex = value.indexOf(':');
+                if (valueIndex >= 0) {
+                    String mappedUri = getNamespace(value.substring(0, valueIndex));
+                    if (mappedUri == null) {
+                        throw new BuildException(
+                                "Unable to find XML NS prefix \"" + value.substring(0, valueIndex) + "\"");
+                    }
+                    value = ProjectHelper.genComponentName(mappedUri, value.substring(valueIndex + 1));
+                }
+            }
+            wrapper.setAttribute(name, value);
+        }
+        return element;
+    }
+
+    /**
+     * Moves to the next line of the equivalent XML file, which holds the start tag of the given element, and returns
+     * the location Ant would give to the element: the position right after its start tag.
+     */
+    private Location nextLocation(PlexusConfiguration c, String indent) {
+        line++;
+        String startTag = getStartTag(c);
+        startTags.put(line, startTag);
+        return new Location(fileName, line, indent.length() + startTag.length() + 1);
+    }
+
+    private String getStartTag(PlexusConfiguration c) {
+        StringBuilder sb = new StringBuilder("<").append(c.getName());
+        for (String name : c.getAttributeNames()) {
+            if (!EXCLUDED_ATTRIBUTES.contains(name)) {
+                sb.append(' ').append(name).append("=\"");
+                escape(c.getAttribute(name), sb);
+                sb.append('"');
+            }
+        }
+        if (c.getChildCount() == 0 && c.getValue() == null) {
+            sb.append(" />");
+        } else {
+            sb.append('>');
+        }
+        return sb.toString();
+    }
+
+    private void pushNamespaces(PlexusConfiguration c) {
+        Map<String, String> declared = new HashMap<>(namespaces.peek());
+        for (String name : c.getAttributeNames()) {
+            if (name.equals(XMLNS)) {
+                declared.put("", c.getAttribute(name));
+            } else if (name.startsWith(XMLNS_PREFIX)) {
+                declared.put(name.substring(XMLNS_PREFIX.length()), c.getAttribute(name));
+            }
+        }
+        namespaces.push(declared);
+    }
+
+    private String getNamespace(String prefix) {
+        String uri = namespaces.peek().get(prefix);
+        if (uri == null && prefix.isEmpty()) {
+            return "";
+        }
+        return uri;
+    }
+
+    private static boolean isIgnoredAttribute(String name) {
+        return EXCLUDED_ATTRIBUTES.contains(name) || name.equals(XMLNS) || name.startsWith(XMLNS_PREFIX);
+    }
+
+    private static int countLines(String value) {
+        int lines = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\n':
+                    sb.append("&#10;");
+                    break;
+                case '\r':
+                    sb.append("&#13;");
+                    break;
+                case '\t':
+                    sb.append("&#9;");
+                    break;
+                default:
+                    sb.append(ch);
+            }
+        }
+    }
+}
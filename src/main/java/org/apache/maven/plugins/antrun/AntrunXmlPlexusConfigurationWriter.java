@@ -18,12 +18,14 @@
  */
 package org.apache.maven.plugins.antrun;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.codehaus.plexus.configuration.PlexusConfiguration;
@@ -48,23 +50,45 @@ class AntrunXmlPlexusConfigurationWriter {
      */
     public void write(PlexusConfiguration configuration, File file, String customTaskPrefix, String antTargetName)
             throws IOException {
+        write(Collections.singletonList(configuration), file, customTaskPrefix, antTargetName);
+    }
+
+    /**
+     * @param configurations The {@link PlexusConfiguration} of each Ant target.
+     * @param file File to write the Plexus configurations to.
+     * @param customTaskPrefix Prefix to use for the custom Ant tasks. Empty if no prefix should be used.
+     * @param antTargetName Name of the default Ant target.
+     * @throws IOException In case of problems.
+     */
+    public void write(
+            List<PlexusConfiguration> configurations, File file, String customTaskPrefix, String antTargetName)
+            throws IOException {
         MXSerializer serializer = new MXSerializer();
         serializer.setProperty(
                 "http://xmlpull.org/v1/doc/properties.html#serializer-line-separator",
                 System.getProperty("line.separator"));
         serializer.setProperty("http://xmlpull.org/v1/doc/properties.html#serializer-indentation", "  ");
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(file))) {
-            serializer.setOutput(bos, AntRunMojo.UTF_8);
-            serializer.startDocument(AntRunMojo.UTF_8, null);
-            if (!customTaskPrefix.isEmpty()) {
-                serializer.setPrefix(customTaskPrefix, AntRunMojo.TASK_URI);
-            }
-            serializer.startTag(null, "project");
-            serializer.attribute(null, "name", "maven-antrun-");
-            serializer.attribute(null, "default", antTargetName);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serializer.setOutput(bos, AntRunMojo.UTF_8);
+        serializer.startDocument(AntRunMojo.UTF_8, null);
+        if (!customTaskPrefix.isEmpty()) {
+            serializer.setPrefix(customTaskPrefix, AntRunMojo.TASK_URI);
+        }
+        serializer.startTag(null, "project");
+        serializer.attribute(null, "name", "maven-antrun-");
+        serializer.attribute(null, "default", antTargetName);
+        for (PlexusConfiguration configuration : configurations) {
             write(configuration, serializer);
-            serializer.endTag(null, "project");
-            serializer.endDocument();
+        }
+        serializer.endTag(null, "project");
+        serializer.endDocument();
+
+        byte[] content = bos.toByteArray();
+        // keep the existing file, and its modification time, when the content is unchanged
+        if (!file.isFile()
+                || file.length() != content.length
+                || !Arrays.equals(content, Files.readAllBytes(file.toPath()))) {
+            Files.write(file.toPath(), content);
         }
     }
 
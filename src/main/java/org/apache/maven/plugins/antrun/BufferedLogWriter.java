@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Writes the messages of the Ant builds to the Maven {@link Log} on a background thread, shared by all the executions
+ * of a session. Each execution collects its messages in a {@link Buffer}, which is written in one block, so that the
+ * output of executions running in parallel modules is not interleaved. The Ant tasks adding messages never wait for
+ * the console: only the end of an execution waits, when the queue of the blocks is full, until the writer catches up.
+ */
+final class BufferedLogWriter {
+
+    /**
+     * The maximum number of blocks waiting to be written. The executions adding a block to a full queue wait for the
+     * writer to catch up.
+     */
+    static final int QUEUE_CAPACITY = 16;
+
+    /**
+     * The time after which the writer thread stops when there is nothing to write.
+     */
+    private static final long IDLE_SECONDS = 10;
+
+    private final BlockingQueue<Block> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private Thread writer;
+
+    /**
+     * @param log The log of the execution.
+     * @param prefix The prefix of all the messages of the execution, usually the module.
+     * @return A new buffer for the messages of an execution.
+     */
+    Buffer open(Log log, String prefix) {
+        return new Buffer(log, prefix);
+    }
+
+    /**
+     * Adds a block to the queue, waiting while the queue is full. An interrupt does not stop the wait, which would
+     * leave the block to be written after the next ones: it is only restored.
+     */
+    private void submit(Block block) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(block);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        startWriter();
+    }
+
+    private synchronized void startWriter() {
+        if (writer == null) {
+            writer = new Thread(this::drain, "antrun-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void drain() {
+        // the thread outlives the execution which started it, and writes the messages of all of them
+        SystemStreamDemux.detach();
+        while (true) {
+            Block block;
+            try {
+                block = queue.poll(IDLE_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                block = null;
+            }
+
+            if (block != null) {
+                block.write();
+                continue;
+            }
+            synchronized (this) {
+                // a block added after the poll is written by this thread, a block added later by a new thread
+                if (queue.isEmpty()) {
+                    writer = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The messages of an execution, which are written when the buffer is closed.
+     */
+    final class Buffer {
+
+        private final Log log;
+
+        private final String prefix;
+
+        private List<Message> messages = new ArrayList<>();
+
+        private Buffer(Log log, String prefix) {
+            this.log = log;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Adds a message to the buffer, without waiting.
+         *
+         * @param message The message.
+         * @param priority The Ant priority of the message.
+         */
+        synchronized void add(String message, int priority) {
+            messages.add(new Message(message, priority));
+        }
+
+        /**
+         * Writes the messages of the buffer in one block, and waits until they are written. An interrupt does not stop
+         * the wait: it is only restored.
+         */
+        synchronized void close() {
+            CountDownLatch written = new CountDownLatch(1);
+            submit(new Block(log, prefix, messages, written));
+            messages = new ArrayList<>();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    written.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Message {
+
+        private final String text;
+
+        private final int priority;
+
+        private Message(String text, int priority) {
+            this.text = text;
+            this.priority = priority;
+        }
+    }
+
+    private static final class Block {
+
+        private final Log log;
+
+        private final String prefix;
+
+        private final List<Message> messages;
+
+        private final CountDownLatch written;
+
+        private Block(Log log, String prefix, List<Message> messages, CountDownLatch written) {
+            this.log = log;
+            this.prefix = prefix;
+            this.messages = messages;
+            this.written = written;
+        }
+
+        /**
+         * Writes the messages, at most once.
+         */
+        synchronized void write() {
+            try {
+                for (Message message : messages) {
+                    MavenLogger.log(log, prefix + message.text, message.priority);
+                }
+                messages.clear();
+            } finally {
+                if (written != null) {
+                    written.countDown();
+                }
+            }
+        }
+    }
+}
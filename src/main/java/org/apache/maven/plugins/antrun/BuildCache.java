@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Local cache of the outputs and exported properties of the Ant targets, shared by all the builds of the user. An
+ * entry is a directory named by the key of the execution, which holds a copy of the declared output files, relative to
+ * the base directory of the module, and the exported properties. When the key of an execution is found, its outputs
+ * are restored instead of running the target, which helps after <code>mvn clean</code> or when switching back to a
+ * branch.
+ * <p>
+ * Entries are written to a temporary directory and then moved, so that concurrent builds only see complete entries.
+ * Once the entries are larger than the maximum size, the least recently used ones are deleted.
+ */
+class BuildCache {
+
+    private static final String ENTRY_FILE = "entry.properties";
+
+    private static final String FILES_DIRECTORY = "files";
+
+    private static final String FILE_KEY_PREFIX = "file.";
+
+    private static final String PROPERTY_KEY_PREFIX = "property.";
+
+    private static final String SIZE_KEY = "size";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /**
+     * @param directory The directory of the cache.
+     * @param maxSize The maximum size of the entries, in bytes.
+     */
+    BuildCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Restores the outputs of an execution.
+     *
+     * @param key The key of the execution.
+     * @param basedir The directory the outputs are restored to.
+     * @return The properties exported by the execution, or null if the cache holds no entry for the key.
+     * @throws IOException If the outputs could not be restored.
+     */
+    Map<String, String> restore(String key, File basedir) throws IOException {
+        File entry = new File(directory, key);
+        File entryFile = new File(entry, ENTRY_FILE);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(entryFile.toPath())) {
+            properties.load(in);
+        }
+
+        File files = new File(entry, FILES_DIRECTORY);
+        Map<String, String> exportedProperties = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            if (name.startsWith(FILE_KEY_PREFIX)) {
+                String path = properties.getProperty(name);
+                File target = new File(basedir, path);
+                Files.createDirectories(target.getParentFile().toPath());
+                // the restored files are as new as if the target had written them
+                Files.copy(new File(files, path).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else if (name.startsWith(PROPERTY_KEY_PREFIX)) {
+                exportedProperties.put(name.substring(PROPERTY_KEY_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        // the modification time of the entry file tells the least recently used entries
+        entryFile.setLastModified(System.currentTimeMillis());
+        return exportedProperties;
+    }
+
+    /**
+     * Stores the outputs of an execution. An output outside of the base directory can not be restored, so the
+     * execution is then not stored.
+     *
+     * @param key The key of the execution.
+     * @param basedir The directory of the outputs.
+     * @param outputs The output files.
+     * @param exportedProperties The properties exported by the execution.
+     * @return Whether the execution was stored.
+     * @throws IOException If the entry could not be written.
+     */
+    boolean store(String key, File basedir, List<File> outputs, Map<String, String> exportedProperties)
+            throws IOException {
+        String base = basedir.getAbsolutePath() + File.separator;
+        List<String> paths = new ArrayList<>(outputs.size());
+        for (File output : outputs) {
+            String path = output.getAbsolutePath();
+            if (!path.startsWith(base)) {
+                return false;
+            }
+            paths.add(path.substring(base.length()).replace(File.separatorChar, '/'));
+        }
+
+        File entry = new File(directory, key);
+        if (new File(entry, ENTRY_FILE).isFile()) {
+            return true;
+        }
+        File tmp = new File(directory, key + ".tmp-" + UUID.randomUUID());
+        File files = new File(tmp, FILES_DIRECTORY);
+        Properties properties = new Properties();
+        long size = 0;
+        try {
+            Files.createDirectories(tmp.toPath());
+            for (int i = 0; i < paths.size(); i++) {
+                File copy = new File(files, paths.get(i));
+                Files.createDirectories(copy.getParentFile().toPath());
+                Files.copy(outputs.get(i).toPath(), copy.toPath());
+                size += copy.length();
+                properties.setProperty(FILE_KEY_PREFIX + i, paths.get(i));
+            }
+            for (Map.Entry<String, String> property : exportedProperties.entrySet()) {
+                properties.setProperty(PROPERTY_KEY_PREFIX + property.getKey(), property.getValue());
+            }
+            properties.setProperty(SIZE_KEY, String.valueOf(size));
+            try (OutputStream out = Files.newOutputStream(new File(tmp, ENTRY_FILE).toPath())) {
+                properties.store(out, null);
+            }
+            try {
+                Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (new File(entry, ENTRY_FILE).isFile()) {
+                    // another build stored the same entry first
+                    return true;
+                }
+                throw e;
+            }
+        } finally {
+            delete(tmp);
+        }
+        evict();
+        return true;
+    }
+
+    /**
+     * Deletes the least recently used entries until the entries fit in the maximum size.
+     *
+     * @throws IOException If the entries could not be listed.
+     */
+    void evict() throws IOException {
+        File[] entries = directory.listFiles(file -> new File(file, ENTRY_FILE).isFile());
+        if (entries == null) {
+            return;
+        }
+        Map<File, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        for (File entry : entries) {
+            long size = getSize(entry);
+            sizes.put(entry, size);
+            total += size;
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        List<File> leastRecentlyUsed = new ArrayList<>(sizes.keySet());
+        leastRecentlyUsed.sort(Comparator.comparingLong(entry -> new File(entry, ENTRY_FILE).lastModified()));
+        for (File entry : leastRecentlyUsed) {
+            if (total <= maxSize) {
+                break;
+            }
+            // a build restoring the entry now no longer finds it
+            File deleted = new File(directory, entry.getName() + ".deleted-" + UUID.randomUUID());
+            if (entry.renameTo(deleted)) {
+                delete(deleted);
+                total -= sizes.get(entry);
+            }
+        }
+    }
+
+    private static long getSize(File entry) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(new File(entry, ENTRY_FILE).toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            // being deleted
+            return 0;
+        }
+        try {
+            return Long.parseLong(properties.getProperty(SIZE_KEY, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+            List<Path> all = new ArrayList<>();
+            paths.forEach(all::add);
+            Collections.reverse(all);
+            for (Path path : all) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * The hits and misses of the executions of a session.
+     */
+    static final class Statistics {
+
+        private final AtomicInteger hits = new AtomicInteger();
+
+        private final AtomicInteger misses = new AtomicInteger();
+
+        void hit() {
+            hits.incrementAndGet();
+        }
+
+        void miss() {
+            misses.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return hits.get() + " hit(s), " + misses.get() + " miss(es) in this session";
+        }
+    }
+}
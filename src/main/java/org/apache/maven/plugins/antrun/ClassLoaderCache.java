@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Class loaders of jar classpaths shared by the executions, so that the jars of a <code>taskdef</code> are opened and
+ * its classes loaded once instead of once per execution. The loaders are keyed by the ordered jars of the classpath
+ * with their size and modification time: a rebuilt jar gets a new loader. Classpaths holding directories are never
+ * shared, since their classes may change without notice.
+ * <p>
+ * The executions acquire and release the loaders. The loaders no execution uses are kept up to {@link #MAX_UNUSED},
+ * after which the least recently used ones are closed. All the loaders are closed with the cache, at the end of the
+ * session.
+ */
+class ClassLoaderCache {
+
+    /**
+     * The maximum number of unused loaders kept open.
+     */
+    static final int MAX_UNUSED = 8;
+
+    private final Map<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param parent The parent of the loader.
+     * @param path The classpath.
+     * @return The shared loader of the classpath, to {@link #release(ClassLoader) release} once the execution is over,
+     *         or <code>null</code> if the classpath cannot be shared.
+     */
+    synchronized AntClassLoader acquire(ClassLoader parent, Path path) {
+        List<Object> key = getKey(parent, path);
+        if (key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(new SharedAntClassLoader(parent, path));
+            entries.put(key, entry);
+        }
+        entry.users++;
+        return entry.loader;
+    }
+
+    /**
+     * @param loader A loader returned by {@link #acquire(ClassLoader, Path)}.
+     */
+    synchronized void release(ClassLoader loader) {
+        for (Entry entry : entries.values()) {
+            if (entry.loader == loader) {
+                entry.users--;
+                break;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Closes all the loaders.
+     */
+    synchronized void close() {
+        for (Entry entry : entries.values()) {
+            entry.loader.cleanup();
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return The number of loaders kept open.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        int unused = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.users == 0) {
+                unused++;
+            }
+        }
+        // the least recently used entries come first
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && unused > MAX_UNUSED; ) {
+            Entry entry = it.next();
+            if (entry.users == 0) {
+                it.remove();
+                entry.loader.cleanup();
+                unused--;
+            }
+        }
+    }
+
+    private static List<Object> getKey(ClassLoader parent, Path path) {
+        List<Object> key = new ArrayList<>();
+        key.add(parent);
+        for (String element : path.list()) {
+            File file = new File(element);
+            if (!file.isFile()) {
+                return null;
+            }
+            key.add(file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified());
+        }
+        return key;
+    }
+
+    private static final class Entry {
+
+        private final AntClassLoader loader;
+
+        private int users;
+
+        Entry(AntClassLoader loader) {
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * Loader which belongs to no project, so that it does not keep one alive. The package roots added by each
+     * <code>taskdef</code> are only added once.
+     */
+    private static final class SharedAntClassLoader extends AntClassLoader {
+
+        /**
+         * Created lazily, since the constructor of {@link AntClassLoader} already adds roots.
+         */
+        private Set<String> systemPackageRoots;
+
+        SharedAntClassLoader(ClassLoader parent, Path path) {
+            super(parent, (Project) null, path, true);
+            addJavaLibraries();
+        }
+
+        @Override
+        public synchronized void addSystemPackageRoot(String packageRoot) {
+            if (systemPackageRoots == null) {
+                systemPackageRoots = new HashSet<>();
+            }
+            if (systemPackageRoots.add(packageRoot)) {
+                super.addSystemPackageRoot(packageRoot);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Session scoped cache of the classpath elements of the Maven projects, so that several executions of the plugin in the
+ * same module compute each classpath once. An entry is dropped as soon as the resolved artifacts or the output
+ * directories of its project change.
+ */
+class ClasspathCache {
+
+    private final Map<MavenProject, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * @param project {@link MavenProject}
+     * @param scope One of {@link Artifact#SCOPE_COMPILE}, {@link Artifact#SCOPE_RUNTIME} or
+     *            {@link Artifact#SCOPE_TEST}.
+     * @return the classpath elements of the project for the given scope.
+     * @throws DependencyResolutionRequiredException In case of a failure.
+     */
+    List<String> getClasspathElements(MavenProject project, String scope)
+            throws DependencyResolutionRequiredException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(project);
+            if (entry == null || !entry.isValidFor(project)) {
+                entry = new Entry(project);
+                entries.put(project, entry);
+            }
+        }
+
+        List<String> elements = entry.elements.get(scope);
+        if (elements == null) {
+            if (Artifact.SCOPE_COMPILE.equals(scope)) {
+                elements = project.getCompileClasspathElements();
+            } else if (Artifact.SCOPE_RUNTIME.equals(scope)) {
+                elements = project.getRuntimeClasspathElements();
+            } else if (Artifact.SCOPE_TEST.equals(scope)) {
+                elements = project.getTestClasspathElements();
+            } else {
+                throw new IllegalArgumentException("Unsupported scope: " + scope);
+            }
+            elements = Collections.unmodifiableList(new ArrayList<>(elements));
+            entry.elements.put(scope, elements);
+        }
+        return elements;
+    }
+
+    private static final class Entry {
+
+        private final Set<Artifact> artifacts;
+
+        private final String outputDirectory;
+
+        private final String testOutputDirectory;
+
+        private final Map<String, List<String>> elements = new ConcurrentHashMap<>();
+
+        Entry(MavenProject project) {
+            // MavenProject keeps the same set until its artifacts are resolved again
+            this.artifacts = project.getArtifacts();
+            this.outputDirectory = project.getBuild().getOutputDirectory();
+            this.testOutputDirectory = project.getBuild().getTestOutputDirectory();
+        }
+
+        boolean isValidFor(MavenProject project) {
+            return artifacts == project.getArtifacts()
+                    && Objects.equals(outputDirectory, project.getBuild().getOutputDirectory())
+                    && Objects.equals(testOutputDirectory, project.getBuild().getTestOutputDirectory());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * A {@link Path} whose elements are only computed when Ant first uses it, so that the classpaths a target does not
+ * reference cost nothing. The elements are added as files, without joining and tokenizing them again.
+ */
+class LazyPath extends Path {
+
+    private Callable<List<String>> elements;
+
+    /**
+     * @param project {@link Project}
+     * @param elements Computes the elements of the path.
+     */
+    LazyPath(Project project, Callable<List<String>> elements) {
+        super(project);
+        this.elements = elements;
+    }
+
+    private synchronized void resolve() {
+        if (elements == null) {
+            return;
+        }
+        List<String> computed;
+        try {
+            computed = elements.call();
+        } catch (BuildException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BuildException("Unable to compute the path: " + e.getMessage(), e);
+        }
+        // only once computed, so that a failure is reported again by the next use rather than giving an empty path
+        elements = null;
+        for (String element : computed) {
+            createPathElement().setLocation(new File(element));
+        }
+    }
+
+    // iterator() is final, but delegates to list() as soon as list() is overridden
+
+    @Override
+    public String[] list() {
+        resolve();
+        return super.list();
+    }
+
+    @Override
+    public synchronized int size() {
+        resolve();
+        return super.size();
+    }
+
+    @Override
+    public synchronized boolean isFilesystemOnly() {
+        resolve();
+        return super.isFilesystemOnly();
+    }
+
+    @Override
+    public String toString() {
+        resolve();
+        return super.toString();
+    }
+
+    @Override
+    public Object clone() {
+        resolve();
+        return super.clone();
+    }
+}
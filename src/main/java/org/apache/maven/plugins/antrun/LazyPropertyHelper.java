@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Set;
+
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+
+/**
+ * A {@link PropertyHelper} which only defines the properties of a {@link PropertySource} when Ant asks for them. A
+ * property is defined the first time it is read, tested or set, so Ant sees the same values as if all the properties
+ * of the source had been set before the first task: a property set afterwards overrides it,
+ * <code>&lt;property&gt;</code> does not, and user properties take precedence.
+ * <p>
+ * A subclass is used instead of a {@link PropertyHelper.PropertyEvaluator} delegate: evaluators are consulted before
+ * the properties of the project, so a property set by a task would not override them, and they are not part of
+ * {@link #getProperties()}, which is what <code>&lt;ant&gt;</code> and <code>&lt;echoproperties&gt;</code> use.
+ */
+class LazyPropertyHelper extends PropertyHelper {
+
+    /**
+     * The properties to define on demand.
+     */
+    interface PropertySource {
+
+        /**
+         * @param name Name of the property.
+         * @return The value of the property, or null if the source does not define it.
+         */
+        Object getProperty(String name);
+
+        /**
+         * @return The names of all the properties defined by the source.
+         */
+        Set<String> getPropertyNames();
+    }
+
+    private PropertySource source;
+
+    /**
+     * Names which must not be taken from the source anymore, because they have already been defined or set.
+     */
+    private final Set<String> resolved = new HashSet<>();
+
+    private boolean allResolved;
+
+    /**
+     * Installs a new lazy property helper in a project. This must be done before the project is initialized, so that
+     * the helper holds all the properties of the project.
+     *
+     * @param project {@link Project}
+     * @return The installed helper.
+     */
+    static LazyPropertyHelper install(Project project) {
+        LazyPropertyHelper helper = new LazyPropertyHelper();
+        helper.setProject(project);
+        project.addReference(MagicNames.REFID_PROPERTY_HELPER, helper);
+        return helper;
+    }
+
+    /**
+     * @param source The properties to define on demand. They override the properties already defined.
+     */
+    synchronized void setSource(PropertySource source) {
+        this.source = source;
+        resolved.clear();
+        allResolved = false;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        resolve(name);
+        return super.getProperty(name);
+    }
+
+    @Override
+    public boolean setProperty(String name, Object value, boolean verbose) {
+        markResolved(name);
+        return super.setProperty(name, value, verbose);
+    }
+
+    @Override
+    public void setNewProperty(String name, Object value) {
+        // the source has been set first, so it wins
+        resolve(name);
+        super.setNewProperty(name, value);
+    }
+
+    @Override
+    public void setUserProperty(String name, Object value) {
+        markResolved(name);
+        super.setUserProperty(name, value);
+    }
+
+    @Override
+    public void setInheritedProperty(String name, Object value) {
+        markResolved(name);
+        super.setInheritedProperty(name, value);
+    }
+
+    @Override
+    public Hashtable<String, Object> getProperties() {
+        resolveAll();
+        return super.getProperties();
+    }
+
+    @Override
+    protected Hashtable<String, Object> getInternalProperties() {
+        resolveAll();
+        return super.getInternalProperties();
+    }
+
+    private synchronized void markResolved(String name) {
+        if (source != null) {
+            resolved.add(name);
+        }
+    }
+
+    private synchronized void resolve(String name) {
+        if (source == null || name == null || !resolved.add(name)) {
+            return;
+        }
+        Object value = source.getProperty(name);
+        // bypass the setter delegates: defining the property does not change it
+        if (value != null && !getInternalUserProperties().containsKey(name)) {
+            getProject().log("Setting project property: " + name + " -> " + value, Project.MSG_DEBUG);
+            super.getInternalProperties().put(name, value);
+        }
+    }
+
+    private synchronized void resolveAll() {
+        if (source != null && !allResolved) {
+            for (String name : source.getPropertyNames()) {
+                resolve(name);
+            }
+            allResolved = true;
+        }
+    }
+}
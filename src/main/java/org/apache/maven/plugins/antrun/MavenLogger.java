@@ -21,8 +21,10 @@ package org.apache.maven.plugins.antrun;
 import java.io.PrintStream;
 
 import org.apache.maven.plugin.logging.Log;
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.DefaultLogger;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
 
 /**
  * Redirects build events from {@link DefaultLogger} to {@link Log}.
@@ -31,27 +33,104 @@ public class MavenLogger extends DefaultLogger {
 
     private final Log log;
 
+    private boolean targetPrefix;
+
+    /**
+     * The target of the message being printed by the current thread, when messages are prefixed.
+     */
+    private final ThreadLocal<String> messageTarget = new ThreadLocal<>();
+
+    private BufferedLogWriter.Buffer buffer;
+
     public MavenLogger(Log log) {
         this.log = log;
     }
 
+    /**
+     * @param targetPrefix Specifies whether the messages are prefixed with the name of their target, which is needed
+     *            when several targets run at the same time.
+     */
+    public void setTargetPrefix(boolean targetPrefix) {
+        this.targetPrefix = targetPrefix;
+    }
+
+    /**
+     * @param buffer The buffer receiving the messages instead of the log, or null to write them to the log directly.
+     */
+    void setBuffer(BufferedLogWriter.Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void targetStarted(BuildEvent event) {
+        if (!targetPrefix) {
+            super.targetStarted(event);
+        }
+    }
+
+    @Override
+    public void messageLogged(BuildEvent event) {
+        if (!targetPrefix) {
+            super.messageLogged(event);
+            return;
+        }
+
+        Target target = event.getTarget();
+        messageTarget.set(target != null && !target.getName().isEmpty() ? target.getName() : null);
+        try {
+            super.messageLogged(event);
+        } finally {
+            messageTarget.remove();
+        }
+    }
+
     @Override
     protected void printMessage(final String message, final PrintStream stream, final int priority) {
-        switch (priority) {
-            case Project.MSG_ERR:
-                log.error(message);
-                break;
-            case Project.MSG_WARN:
-                log.warn(message);
-                break;
-            case Project.MSG_DEBUG:
-            case Project.MSG_VERBOSE:
-                log.debug(message);
-                break;
-            case Project.MSG_INFO:
-            default:
-                log.info(message);
-                break;
+        String target = messageTarget.get();
+        if (target != null) {
+            printPriorityMessage("[" + target + "] " + message, priority);
+        } else {
+            printPriorityMessage(message, priority);
         }
     }
+
+    /**
+     * @param message A formatted message, such as the ones of a forked execution.
+     * @param priority The Ant priority of the message.
+     */
+    void printPriorityMessage(final String message, final int priority) {
+        BufferedLogWriter.Buffer buffer = this.buffer;
+        if (buffer != null) {
+            buffer.add(message, priority);
+        } else {
+            log(log, message, priority);
+        }
+    }
+
+    /**
+     * @param log The Maven log.
+     * @param message The message.
+     * @param priority The Ant priority of the message.
+     */
+    static void log(final Log log, final String message, final int priority) {
+        // the Maven log writes to System.out, which may be routed to the project
+        SystemStreamDemux.direct(() -> {
+            switch (priority) {
+                case Project.MSG_ERR:
+                    log.error(message);
+                    break;
+                case Project.MSG_WARN:
+                    log.warn(message);
+                    break;
+                case Project.MSG_DEBUG:
+                case Project.MSG_VERBOSE:
+                    log.debug(message);
+                    break;
+                case Project.MSG_INFO:
+                default:
+                    log.info(message);
+                    break;
+            }
+        });
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The properties {@link AntRunMojo#copyProperties(MavenProject, org.apache.tools.ant.Project)} copies into the Ant
+ * project, computed one at a time. When several of them have the same name, the value is the one copied last.
+ */
+class MavenPropertySource implements LazyPropertyHelper.PropertySource {
+
+    private final MavenProject mavenProject;
+
+    private final Properties userProperties;
+
+    private final String propertyPrefix;
+
+    private final String versionsPropertyName;
+
+    private final Map<String, Supplier<String>> projectProperties = new LinkedHashMap<>();
+
+    private Map<String, String> dependencyProperties;
+
+    /**
+     * @param mavenProject {@link MavenProject}
+     * @param userProperties The user properties of the Maven session.
+     * @param localRepository The base directory of the local repository.
+     * @param localRepositoryDescription The description of the local repository, as the eager copy sets it.
+     * @param propertyPrefix Prefix of the project and dependency properties.
+     * @param versionsPropertyName Name of the property holding the versions of the dependencies.
+     */
+    MavenPropertySource(
+            MavenProject mavenProject,
+            Properties userProperties,
+            File localRepository,
+            Supplier<String> localRepositoryDescription,
+            String propertyPrefix,
+            String versionsPropertyName) {
+        this.mavenProject = mavenProject;
+        this.userProperties = userProperties;
+        this.propertyPrefix = propertyPrefix;
+        this.versionsPropertyName = versionsPropertyName;
+
+        projectProperties.put(propertyPrefix + "project.groupId", mavenProject::getGroupId);
+        projectProperties.put(propertyPrefix + "project.artifactId", mavenProject::getArtifactId);
+        projectProperties.put(propertyPrefix + "project.name", mavenProject::getName);
+        projectProperties.put(propertyPrefix + "project.description", mavenProject::getDescription);
+        projectProperties.put(propertyPrefix + "project.version", mavenProject::getVersion);
+        projectProperties.put(propertyPrefix + "project.packaging", mavenProject::getPackaging);
+        projectProperties.put(
+                propertyPrefix + "project.build.directory",
+                () -> mavenProject.getBuild().getDirectory());
+        projectProperties.put(
+                propertyPrefix + "project.build.outputDirectory",
+                () -> mavenProject.getBuild().getOutputDirectory());
+        projectProperties.put(
+                propertyPrefix + "project.build.testOutputDirectory",
+                () -> mavenProject.getBuild().getTestOutputDirectory());
+        projectProperties.put(
+                propertyPrefix + "project.build.sourceDirectory",
+                () -> mavenProject.getBuild().getSourceDirectory());
+        projectProperties.put(
+                propertyPrefix + "project.build.testSourceDirectory",
+                () -> mavenProject.getBuild().getTestSourceDirectory());
+        projectProperties.put(propertyPrefix + "localRepository", localRepositoryDescription);
+        projectProperties.put(propertyPrefix + "settings.localRepository", localRepository::getPath);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        if (name.equals(versionsPropertyName)) {
+            return getVersions();
+        }
+        if (name.startsWith(propertyPrefix)) {
+            String value = getDependencyProperties().get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        Supplier<String> projectProperty = projectProperties.get(name);
+        if (projectProperty != null) {
+            String value = projectProperty.get();
+            if (value != null) {
+                return value;
+            }
+        }
+        if ("ant.file".equals(name)) {
+            return mavenProject.getFile().getAbsolutePath();
+        }
+        return userProperties.getProperty(name, mavenProject.getProperties().getProperty(name));
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+        Set<String> names = new LinkedHashSet<>(mavenProject.getProperties().stringPropertyNames());
+        names.addAll(userProperties.stringPropertyNames());
+        names.add("ant.file");
+        names.addAll(projectProperties.keySet());
+        names.addAll(getDependencyProperties().keySet());
+        names.add(versionsPropertyName);
+        return names;
+    }
+
+    private synchronized Map<String, String> getDependencyProperties() {
+        if (dependencyProperties == null) {
+            dependencyProperties = new HashMap<>();
+            for (Artifact artifact : mavenProject.getArtifacts()) {
+                dependencyProperties.put(
+                        propertyPrefix + artifact.getDependencyConflictId(),
+                        artifact.getFile().getPath());
+            }
+        }
+        return dependencyProperties;
+    }
+
+    private String getVersions() {
+        StringBuilder versionsBuffer = new StringBuilder();
+        for (Artifact artifact : mavenProject.getArtifacts()) {
+            versionsBuffer.append(artifact.getVersion()).append(File.pathSeparator);
+        }
+        return versionsBuffer.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.TaskAdapter;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Defines the Maven Ant tasks in an Ant project, as a <code>typedef</code> of {@link AntRunMojo#ANTLIB} would. The
+ * antlib is read once per class loader instead of once per execution, and the task classes are only loaded when a
+ * target uses them.
+ * <p>
+ * Ant loads the antlib of an <code>antlib:</code> namespace with a <code>typedef</code> the first time a component of
+ * the namespace is looked up, even when the component is already defined. The project therefore gets a
+ * {@link ComponentHelper} which looks up the components of the {@link AntRunMojo#TASK_URI} namespace directly.
+ */
+final class MavenTaskDefinitions {
+
+    private MavenTaskDefinitions() {
+        // no instances
+    }
+
+    /**
+     * @param antProject {@link Project}
+     * @param defaultNamespace Specifies whether the tasks are also defined without a namespace, besides the
+     *            {@link AntRunMojo#TASK_URI} namespace.
+     * @return The names of the tasks which are only defined in the {@link AntRunMojo#TASK_URI} namespace, because an
+     *         Ant task of the same name exists.
+     */
+    static List<String> define(Project antProject, boolean defaultNamespace) {
+        ComponentHelper componentHelper = NamespaceComponentHelper.install(antProject);
+        ClassLoader classLoader = MavenTaskDefinitions.class.getClassLoader();
+        List<String> namespaceOnly = new ArrayList<>();
+        for (TaskDef taskDef : Antlib.TASK_DEFS) {
+            String componentName = ProjectHelper.genComponentName(AntRunMojo.TASK_URI, taskDef.name);
+            componentHelper.addDataTypeDefinition(taskDef.toDefinition(componentName, classLoader));
+            if (!defaultNamespace) {
+                continue;
+            }
+
+            if (componentHelper.getDefinition(taskDef.name) != null) {
+                namespaceOnly.add(taskDef.name);
+            } else {
+                componentHelper.addDataTypeDefinition(taskDef.toDefinition(taskDef.name, classLoader));
+            }
+        }
+        return namespaceOnly;
+    }
+
+    /**
+     * Looks up the components of the {@link AntRunMojo#TASK_URI} namespace without loading the antlib of the namespace.
+     */
+    private static final class NamespaceComponentHelper extends ComponentHelper {
+
+        private static ComponentHelper install(Project antProject) {
+            ComponentHelper current = ComponentHelper.getComponentHelper(antProject);
+            if (current instanceof NamespaceComponentHelper) {
+                return current;
+            }
+
+            // copies the definitions, as for the projects started by the ant task
+            NamespaceComponentHelper componentHelper = new NamespaceComponentHelper();
+            componentHelper.setProject(antProject);
+            componentHelper.initSubProject(current);
+            antProject.addReference(ComponentHelper.COMPONENT_HELPER_REFERENCE, componentHelper);
+            return componentHelper;
+        }
+
+        @Override
+        public AntTypeDefinition getDefinition(String componentName) {
+            if (AntRunMojo.TASK_URI.equals(ProjectHelper.extractUriFromComponentName(componentName))) {
+                return getAntTypeTable().get(componentName);
+            }
+            return super.getDefinition(componentName);
+        }
+    }
+
+    /**
+     * The <code>taskdef</code> elements of the antlib, read when first used.
+     */
+    private static final class Antlib {
+
+        private static final List<TaskDef> TASK_DEFS = read();
+
+        private static List<TaskDef> read() {
+            InputStream in = MavenTaskDefinitions.class.getClassLoader().getResourceAsStream(AntRunMojo.ANTLIB);
+            if (in == null) {
+                throw new BuildException("Unable to find " + AntRunMojo.ANTLIB);
+            }
+
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                List<TaskDef> taskDefs = new ArrayList<>();
+                for (Xpp3Dom child : Xpp3DomBuilder.build(reader).getChildren("taskdef")) {
+                    taskDefs.add(new TaskDef(child.getAttribute("name"), child.getAttribute("classname")));
+                }
+                return Collections.unmodifiableList(taskDefs);
+            } catch (IOException | XmlPullParserException e) {
+                throw new BuildException("Unable to read " + AntRunMojo.ANTLIB, e);
+            }
+        }
+    }
+
+    private static final class TaskDef {
+
+        private final String name;
+
+        private final String className;
+
+        private TaskDef(String name, String className) {
+            this.name = name;
+            this.className = className;
+        }
+
+        private AntTypeDefinition toDefinition(String componentName, ClassLoader classLoader) {
+            AntTypeDefinition definition = new AntTypeDefinition();
+            definition.setName(componentName);
+            definition.setClassName(className);
+            definition.setClassLoader(classLoader);
+            // the same as a taskdef
+            definition.setAdapterClass(TaskAdapter.class);
+            definition.setAdaptToClass(Task.class);
+            return definition;
+        }
+    }
+}
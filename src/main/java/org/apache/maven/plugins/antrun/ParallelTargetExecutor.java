@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Executor;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.helper.SingleCheckExecutor;
+
+/**
+ * Ant {@link Executor} running the targets on a bounded pool of threads: a target starts as soon as all the targets it
+ * depends on have succeeded. When a target fails, no other target is started, the running ones are waited for and the
+ * first failure is thrown.
+ */
+class ParallelTargetExecutor implements Executor {
+
+    private final int threads;
+
+    /**
+     * @param threads The maximum number of targets running at the same time.
+     */
+    ParallelTargetExecutor(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public void executeTargets(Project project, String[] targetNames) throws BuildException {
+        Map<String, Target> waiting = new LinkedHashMap<>();
+        for (Target target : project.topoSort(targetNames, project.getTargets(), false)) {
+            waiting.put(target.getName(), target);
+        }
+
+        ExecutorService pool =
+                Executors.newFixedThreadPool(Math.min(threads, waiting.size()), new TargetThreadFactory());
+        try {
+            CompletionService<String> completion = new ExecutorCompletionService<>(pool);
+            Set<String> succeeded = new HashSet<>();
+            Throwable failure = null;
+            int running = 0;
+            while (true) {
+                if (failure == null) {
+                    for (Iterator<Target> it = waiting.values().iterator(); it.hasNext(); ) {
+                        Target target = it.next();
+                        if (succeeded.containsAll(Collections.list(target.getDependencies()))) {
+                            it.remove();
+                            completion.submit(() -> {
+                                target.performTasks();
+                                return target.getName();
+                            });
+                            running++;
+                        }
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+
+                try {
+                    succeeded.add(completion.take().get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+                running--;
+            }
+
+            if (failure instanceof BuildException) {
+                throw (BuildException) failure;
+            } else if (failure != null) {
+                throw new BuildException(failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while running the targets", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    public Executor getSubProjectExecutor() {
+        // the same as Ant's default executor for the projects started by <ant> and <antcall>
+        return new SingleCheckExecutor();
+    }
+
+    /**
+     * Creates the threads running the targets, with the context class loader of the thread starting the targets.
+     */
+    private static class TargetThreadFactory implements ThreadFactory {
+
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "antrun-target-" + count.incrementAndGet());
+            thread.setContextClassLoader(contextClassLoader);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.Hashtable;
+
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.DefaultDefinitions;
+import org.apache.tools.ant.Project;
+
+/**
+ * Initializes Ant projects as {@link Project#init()} does, but copies the default Ant task and type definitions from a
+ * template project instead of creating them again. The template is initialized once per class loader and is never
+ * executed.
+ * <p>
+ * Each project gets its own tables: the definitions added by an execution, for instance with <code>taskdef</code>, are
+ * neither seen by the template nor by the other executions. Only the definitions themselves are shared, as Ant does for
+ * the projects started by the <code>ant</code> task.
+ */
+final class ProjectTemplate {
+
+    private ProjectTemplate() {
+        // no instances
+    }
+
+    /**
+     * @param antProject A new Ant project.
+     */
+    static void init(Project antProject) {
+        antProject.initProperties();
+
+        ComponentHelper componentHelper = ComponentHelper.getComponentHelper(antProject);
+        componentHelper.getAntTypeTable().putAll(Holder.DEFINITIONS);
+        // the few restricted definitions are kept in lists which the projects must not share
+        new DefaultDefinitions(componentHelper).execute();
+    }
+
+    private static final class Holder {
+
+        /**
+         * The unrestricted default definitions, which {@link Project#init()} loads from the properties files of Ant.
+         */
+        private static final Hashtable<String, AntTypeDefinition> DEFINITIONS = createDefinitions();
+
+        private static Hashtable<String, AntTypeDefinition> createDefinitions() {
+            Project template = new Project();
+            ComponentHelper.getComponentHelper(template).initDefaultDefinitions();
+            return new Hashtable<>(ComponentHelper.getComponentHelper(template).getAntTypeTable());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+
+/**
+ * Records the names of the Ant properties created or changed once it is installed, so that only those are exported to
+ * Maven instead of the whole property table, which holds all the system properties.
+ */
+class PropertyChangeRecorder implements PropertyHelper.PropertySetter {
+
+    private final Set<String> names = new LinkedHashSet<>();
+
+    /**
+     * Installs a new recorder in a project.
+     *
+     * @param project {@link Project}
+     * @return The installed recorder.
+     */
+    static PropertyChangeRecorder install(Project project) {
+        PropertyChangeRecorder recorder = new PropertyChangeRecorder();
+        PropertyHelper.getPropertyHelper(project).add(recorder);
+        return recorder;
+    }
+
+    @Override
+    public boolean setNew(String property, Object value, PropertyHelper propertyHelper) {
+        if (propertyHelper.getProperty(property) == null) {
+            record(property);
+        }
+        // let the property helper set the property
+        return false;
+    }
+
+    @Override
+    public boolean set(String property, Object value, PropertyHelper propertyHelper) {
+        if (propertyHelper.getUserProperty(property) == null && !value.equals(propertyHelper.getProperty(property))) {
+            record(property);
+        }
+        return false;
+    }
+
+    private synchronized void record(String property) {
+        names.add(property);
+    }
+
+    /**
+     * @return The names of the properties created or changed, in the order they were first set.
+     */
+    synchronized List<String> getNames() {
+        return new ArrayList<>(names);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.function.Supplier;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Access to objects shared by all the executions of the plugin during a Maven session. The objects are stored in the
+ * {@link SessionData} of the repository session and keyed by their class, so that different versions of the plugin
+ * used in the same session never share state.
+ */
+final class SessionCache {
+
+    private SessionCache() {
+        // no instances
+    }
+
+    /**
+     * @param session the Maven session, can be null.
+     * @param type the type of the shared object, also used as the key.
+     * @param factory creates the shared object when the session does not hold one yet.
+     * @param <T> the type of the shared object.
+     * @return the shared object, or a new unshared one when there is no session to store it in.
+     */
+    static <T> T get(MavenSession session, Class<T> type, Supplier<T> factory) {
+        RepositorySystemSession repositorySession = session != null ? session.getRepositorySession() : null;
+        if (repositorySession == null) {
+            return factory.get();
+        }
+
+        SessionData data = repositorySession.getData();
+        Object value = data.get(type);
+        while (value == null) {
+            data.set(type, null, factory.get());
+            value = data.get(type);
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * @param session the Maven session, can be null.
+     * @param type the type of the shared object, also used as the key.
+     * @param <T> the type of the shared object.
+     * @return the shared object the session held, or null if there was none.
+     */
+    static <T> T remove(MavenSession session, Class<T> type) {
+        RepositorySystemSession repositorySession = session != null ? session.getRepositorySession() : null;
+        if (repositorySession == null) {
+            return null;
+        }
+
+        SessionData data = repositorySession.getData();
+        Object value = data.get(type);
+        while (value != null && !data.set(type, value, null)) {
+            value = data.get(type);
+        }
+        return type.cast(value);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+
+/**
+ * Ant project taking the loaders of the <code>taskdef</code> and <code>typedef</code> classpaths from a
+ * {@link ClassLoaderCache}. Ant looks for the loader of a <code>classpathref</code> under the reference
+ * <code>ant.loader.</code><i>refid</i> when the <code>ant.reuse.loader</code> property is set: the project answers
+ * with the shared loader of the referenced path. The projects started by the <code>ant</code> task share the loaders
+ * too.
+ */
+class SharedClassLoaderProject extends Project {
+
+    private final ClassLoaderCache cache;
+
+    /**
+     * The loaders acquired by the project and its sub-projects.
+     */
+    private final List<ClassLoader> acquired;
+
+    /**
+     * @param cache The shared loaders.
+     */
+    SharedClassLoaderProject(ClassLoaderCache cache) {
+        this(cache, new ArrayList<>());
+    }
+
+    private SharedClassLoaderProject(ClassLoaderCache cache, List<ClassLoader> acquired) {
+        this.cache = cache;
+        this.acquired = acquired;
+    }
+
+    /**
+     * Makes the definitions with a <code>classpathref</code> use the shared loaders. The property is set as a user
+     * property, so that the projects started by the <code>ant</code> task inherit it.
+     */
+    void enableLoaderReuse() {
+        setUserProperty(MagicNames.REFID_CLASSPATH_REUSE_LOADER, "true");
+    }
+
+    @Override
+    public <T> T getReference(String key) {
+        T reference = super.getReference(key);
+        if (reference == null && key.startsWith(MagicNames.REFID_CLASSPATH_LOADER_PREFIX)) {
+            Object path = super.getReference(key.substring(MagicNames.REFID_CLASSPATH_LOADER_PREFIX.length()));
+            if (path instanceof Path) {
+                AntClassLoader loader = cache.acquire(getCoreLoaderOrDefault(), (Path) path);
+                if (loader != null) {
+                    synchronized (acquired) {
+                        acquired.add(loader);
+                    }
+                    addReference(key, loader);
+                    @SuppressWarnings("unchecked")
+                    T shared = (T) loader;
+                    return shared;
+                }
+            }
+        }
+        return reference;
+    }
+
+    private ClassLoader getCoreLoaderOrDefault() {
+        // as createClassLoader(Path)
+        return getCoreLoader() != null ? getCoreLoader() : Project.class.getClassLoader();
+    }
+
+    @Override
+    public Project createSubProject() {
+        Project subProject = new SharedClassLoaderProject(cache, acquired);
+        initSubProject(subProject);
+        return subProject;
+    }
+
+    /**
+     * Gives back the loaders acquired by the project and its sub-projects, once the execution is over.
+     */
+    void releaseClassLoaders() {
+        synchronized (acquired) {
+            for (ClassLoader loader : acquired) {
+                cache.release(loader);
+            }
+            acquired.clear();
+        }
+    }
+}
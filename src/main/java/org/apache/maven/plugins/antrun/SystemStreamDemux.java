@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.apache.tools.ant.DemuxOutputStream;
+import org.apache.tools.ant.Project;
+
+/**
+ * Routes what the threads of the executions write to <code>System.out</code> and <code>System.err</code> to the Ant
+ * project of their execution, as the Ant command line does with {@link DemuxOutputStream}. The output of a task which
+ * registered its thread, such as a <code>java</code> task running in the JVM, goes to the task and thus to its
+ * <code>output</code> or <code>error</code> file, and any other output is logged by the project. The threads started
+ * by an execution belong to it too, and the threads of no execution write to the original streams, so that the
+ * executions of modules built at the same time with <code>-T</code> never see each other's output.
+ * <p>
+ * The streams are installed while at least one execution is running. The messages the Maven log writes go to the
+ * original streams, see {@link #direct(Runnable)}.
+ * <p>
+ * A long-lived thread started during an execution outlives it, and may later work for other executions: such threads
+ * {@link #detach()} themselves, and the threads of the common {@link ForkJoinPool} always write to the original
+ * streams. A closed owner also lets go of its project, so a thread left behind does not keep it in memory.
+ */
+final class SystemStreamDemux {
+
+    private static final InheritableThreadLocal<Owner> OWNER = new InheritableThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> DIRECT = new ThreadLocal<>();
+
+    private static int executions;
+
+    private static PrintStream originalOut;
+
+    private static PrintStream originalErr;
+
+    private static PrintStream out;
+
+    private static PrintStream err;
+
+    private SystemStreamDemux() {}
+
+    /**
+     * Routes the output of the current thread, and of the threads it starts, to the project until the returned owner
+     * is closed.
+     *
+     * @param project The project of the execution.
+     * @return The owner to close once the execution is over, in the same thread.
+     */
+    static Owner open(Project project) {
+        install();
+        Owner owner = new Owner(project, OWNER.get());
+        OWNER.set(owner);
+        return owner;
+    }
+
+    /**
+     * Detaches the current thread from the execution which started it, so that it writes to the original streams.
+     */
+    static void detach() {
+        OWNER.remove();
+    }
+
+    /**
+     * Runs an action writing to the original streams, even from the thread of an execution. The Maven log, which
+     * writes to <code>System.out</code>, must not be routed back to the project.
+     *
+     * @param action The action.
+     */
+    static void direct(Runnable action) {
+        if (DIRECT.get() != null) {
+            action.run();
+            return;
+        }
+        DIRECT.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            DIRECT.remove();
+        }
+    }
+
+    private static synchronized void install() {
+        if (executions++ == 0) {
+            originalOut = System.out;
+            originalErr = System.err;
+            out = new PrintStream(new RoutingOutputStream(originalOut, false), true);
+            err = new PrintStream(new RoutingOutputStream(originalErr, true), true);
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    private static synchronized void uninstall() {
+        if (--executions == 0) {
+            // unless something else replaced them in the meantime
+            if (System.out == out) {
+                System.setOut(originalOut);
+            }
+            if (System.err == err) {
+                System.setErr(originalErr);
+            }
+            out = null;
+            err = null;
+        }
+    }
+
+    /**
+     * The execution owning a thread.
+     */
+    static final class Owner implements AutoCloseable {
+
+        private final Owner previous;
+
+        private volatile OutputStream out;
+
+        private volatile OutputStream err;
+
+        Owner(Project project, Owner previous) {
+            this.previous = previous;
+            this.out = new DemuxOutputStream(project, false);
+            this.err = new DemuxOutputStream(project, true);
+        }
+
+        /**
+         * Writes the last incomplete line of the current thread and stops routing the output to the project: the
+         * threads left behind by the execution write to the original streams.
+         */
+        @Override
+        public void close() {
+            try {
+                direct(() -> {
+                    try {
+                        out.flush();
+                        err.flush();
+                    } catch (IOException e) {
+                        // nothing left to lose
+                    }
+                });
+            } finally {
+                out = null;
+                err = null;
+                if (OWNER.get() == this) {
+                    if (previous != null) {
+                        OWNER.set(previous);
+                    } else {
+                        OWNER.remove();
+                    }
+                }
+                uninstall();
+            }
+        }
+    }
+
+    /**
+     * Writes to the project owning the current thread, or to the original stream.
+     */
+    private static final class RoutingOutputStream extends OutputStream {
+
+        private final PrintStream original;
+
+        private final boolean error;
+
+        RoutingOutputStream(PrintStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        /**
+         * @return The stream of the project owning the current thread, or null.
+         */
+        private OutputStream target() {
+            if (DIRECT.get() != null) {
+                return null;
+            }
+            Thread thread = Thread.currentThread();
+            if (thread instanceof ForkJoinWorkerThread
+                    && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool()) {
+                // shared by all the executions, whichever started it
+                detach();
+                return null;
+            }
+            for (Owner owner = OWNER.get(); owner != null; owner = owner.previous) {
+                OutputStream target = error ? owner.err : owner.out;
+                if (target != null) {
+                    return target;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream target = target();
+            if (target == null) {
+                original.write(b);
+                return;
+            }
+            // anything the project writes while it logs the line goes to the original stream
+            DIRECT.set(Boolean.TRUE);
+            try {
+                target.write(b);
+            } finally {
+                DIRECT.remove();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream target = target();
+            if (target == null) {
+                original.write(b, off, len);
+                return;
+            }
+            DIRECT.set(Boolean.TRUE);
+            try {
+                target.write(b, off, len);
+            } finally {
+                DIRECT.remove();
+            }
+        }
+
+        @Override
+        public void flush() {
+            // the project gets its output by lines
+            if (target() == null) {
+                original.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+
+/**
+ * Records the wall time, the CPU time and the memory allocated by each Ant target and task. The values of a task
+ * include the tasks nested in it, and the runs of the same task are added up. The CPU time and the allocated memory are
+ * only recorded when the JVM supports measuring them for the current thread, otherwise only the wall time is.
+ */
+class TimingListener implements BuildListener {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * <code>com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long)</code>, or null when the JVM does not measure
+     * the allocated memory. It is looked up by name, as only some JVMs have this interface.
+     */
+    private static final Method THREAD_ALLOCATED_BYTES = findThreadAllocatedBytes();
+
+    private final Map<String, Timing> targets = new LinkedHashMap<>();
+
+    private final Map<String, Timing> tasks = new LinkedHashMap<>();
+
+    /**
+     * The targets and tasks started by the current thread and not finished yet, the innermost first.
+     */
+    private final ThreadLocal<Deque<Sample>> started = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void targetStarted(BuildEvent event) {
+        started.get().push(new Sample());
+    }
+
+    @Override
+    public void targetFinished(BuildEvent event) {
+        Sample end = new Sample();
+        Sample start = started.get().poll();
+        if (start != null) {
+            Target target = event.getTarget();
+            record(targets, target.getName(), target.getName(), null, 0, start, end);
+        }
+    }
+
+    @Override
+    public void taskStarted(BuildEvent event) {
+        started.get().push(new Sample());
+    }
+
+    @Override
+    public void taskFinished(BuildEvent event) {
+        Sample end = new Sample();
+        Sample start = started.get().poll();
+        if (start != null) {
+            Task task = event.getTask();
+            Target target = task.getOwningTarget();
+            String targetName = target != null ? target.getName() : "";
+            int line = task.getLocation().getLineNumber();
+            String key = targetName + '\u0000' + task.getTaskName() + '\u0000' + line;
+            record(tasks, key, task.getTaskName(), targetName, line, start, end);
+        }
+    }
+
+    @Override
+    public void buildStarted(BuildEvent event) {}
+
+    @Override
+    public void buildFinished(BuildEvent event) {}
+
+    @Override
+    public void messageLogged(BuildEvent event) {}
+
+    private synchronized void record(
+            Map<String, Timing> timings, String key, String name, String target, int line, Sample start, Sample end) {
+        timings.computeIfAbsent(key, k -> new Timing(name, target, line)).add(start, end);
+    }
+
+    /**
+     * @param count The maximum number of tasks.
+     * @return The tasks which took the most wall time, the slowest first.
+     */
+    synchronized List<Timing> getSlowestTasks(int count) {
+        List<Timing> slowest = new ArrayList<>(tasks.values());
+        slowest.sort(Comparator.comparingLong(Timing::getWallTime).reversed());
+        return slowest.subList(0, Math.max(0, Math.min(count, slowest.size())));
+    }
+
+    /**
+     * Writes the recorded values in JSON, the times in nanoseconds and the memory in bytes. The tasks are sorted by
+     * decreasing wall time.
+     *
+     * @param file The report file.
+     * @param targetName The name of the target run by the execution.
+     * @throws IOException In case of problems writing the file.
+     */
+    synchronized void writeReport(File file, String targetName) throws IOException {
+        // noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"target\": " + quote(targetName) + ",\n  \"targets\": [");
+            writeTimings(writer, new ArrayList<>(targets.values()));
+            writer.write("],\n  \"tasks\": [");
+            writeTimings(writer, getSlowestTasks(tasks.size()));
+            writer.write("]\n}\n");
+        }
+    }
+
+    private static void writeTimings(Writer writer, List<Timing> timings) throws IOException {
+        String separator = "\n";
+        for (Timing timing : timings) {
+            writer.write(separator);
+            writer.write("    {\"name\": " + quote(timing.name));
+            if (timing.target != null) {
+                writer.write(", \"target\": " + quote(timing.target) + ", \"line\": " + timing.line);
+            }
+            writer.write(", \"count\": " + timing.count + ", \"wallTime\": " + timing.wallTime);
+            if (timing.cpuTime >= 0) {
+                writer.write(", \"cpuTime\": " + timing.cpuTime);
+            }
+            if (timing.allocatedBytes >= 0) {
+                writer.write(", \"allocatedBytes\": " + timing.allocatedBytes);
+            }
+            writer.write("}");
+            separator = ",\n";
+        }
+        if (!timings.isEmpty()) {
+            writer.write("\n  ");
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Method findThreadAllocatedBytes() {
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(THREADS)
+                    && (Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS)
+                    && (Boolean) type.getMethod("isThreadAllocatedMemoryEnabled").invoke(THREADS)) {
+                return type.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // not measured
+        }
+        return null;
+    }
+
+    /**
+     * The values measured by the current thread when a target or task starts or finishes.
+     */
+    private static final class Sample {
+
+        private final long wallTime = System.nanoTime();
+
+        private final long cpuTime = currentThreadCpuTime();
+
+        private final long allocatedBytes = currentThreadAllocatedBytes();
+
+        private static long currentThreadCpuTime() {
+            if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+                return THREADS.getCurrentThreadCpuTime();
+            }
+            return -1;
+        }
+
+        private static long currentThreadAllocatedBytes() {
+            if (THREAD_ALLOCATED_BYTES == null) {
+                return -1;
+            }
+            try {
+                return (Long) THREAD_ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * The values recorded for a target or task, -1 when they could not be measured.
+     */
+    static final class Timing {
+
+        private final String name;
+
+        private final String target;
+
+        private final int line;
+
+        private int count;
+
+        private long wallTime;
+
+        private long cpuTime;
+
+        private long allocatedBytes;
+
+        private Timing(String name, String target, int line) {
+            this.name = name;
+            this.target = target;
+            this.line = line;
+        }
+
+        private void add(Sample start, Sample end) {
+            count++;
+            wallTime += end.wallTime - start.wallTime;
+            cpuTime = add(cpuTime, start.cpuTime, end.cpuTime);
+            allocatedBytes = add(allocatedBytes, start.allocatedBytes, end.allocatedBytes);
+        }
+
+        private static long add(long total, long start, long end) {
+            return total < 0 || start < 0 || end < 0 ? -1 : total + end - start;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getTarget() {
+            return target;
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getWallTime() {
+            return wallTime;
+        }
+
+        long getCpuTime() {
+            return cpuTime;
+        }
+
+        long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
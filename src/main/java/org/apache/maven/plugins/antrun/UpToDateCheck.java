@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.model.FileSet;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.xml.Xpp3DomUtils;
+
+/**
+ * Decides whether an Ant target has to run again, by comparing a fingerprint of the target, its declared inputs, the
+ * Maven properties and classpaths with the fingerprint stored after the last successful execution.
+ */
+class UpToDateCheck {
+
+    private static final String INPUTS_KEY = "inputs";
+
+    private static final String OUTPUTS_KEY = "outputs";
+
+    private static final String PROPERTY_KEY_PREFIX = "property.";
+
+    private final File basedir;
+
+    private final File storeFile;
+
+    private final MessageDigest digest;
+
+    private Properties stored;
+
+    /**
+     * @param basedir Directory against which relative fileset directories are resolved.
+     * @param storeFile File holding the fingerprint of the last successful execution.
+     */
+    UpToDateCheck(File basedir, File storeFile) {
+        this.basedir = basedir;
+        this.storeFile = storeFile;
+        this.digest = Digests.newDigest();
+    }
+
+    /**
+     * Adds a named value, such as a plugin parameter, to the fingerprint.
+     *
+     * @param name Name of the value.
+     * @param value The value, can be null.
+     */
+    void update(String name, String value) {
+        update(name);
+        update(value == null ? "\u0000" : value);
+    }
+
+    /**
+     * Adds the Ant target configuration to the fingerprint.
+     *
+     * @param configuration {@link PlexusConfiguration}
+     */
+    void update(PlexusConfiguration configuration) {
+        update(configuration, digest);
+    }
+
+    /**
+     * Adds the Maven properties the target can use to the fingerprint, since the target configuration holds their
+     * expressions rather than their values.
+     *
+     * @param projectProperties The properties of the Maven project.
+     * @param userProperties The user properties, such as the ones set with <code>-D</code>, which take precedence.
+     */
+    void updateProperties(Properties projectProperties, Properties userProperties) {
+        Set<String> keys = new TreeSet<>(projectProperties.stringPropertyNames());
+        keys.addAll(userProperties.stringPropertyNames());
+        for (String key : keys) {
+            update(key, userProperties.getProperty(key, projectProperties.getProperty(key)));
+        }
+    }
+
+    /**
+     * Adds a classpath to the fingerprint. Besides the ordered list of elements, the size and the modification time of
+     * every file is taken into account, so that a rebuilt snapshot dependency is noticed.
+     *
+     * @param name Name of the classpath.
+     * @param elements Classpath elements.
+     */
+    void updateClasspath(String name, Collection<String> elements) {
+        update(name);
+        for (String element : elements) {
+            File file = new File(element);
+            update(element);
+            if (file.isFile()) {
+                update(file.length() + ":" + file.lastModified());
+            }
+        }
+    }
+
+    /**
+     * Adds the content of all the files matched by the given filesets to the fingerprint.
+     *
+     * @param fileSets {@link FileSet} list, can be null.
+     * @throws IOException In case of problems reading the files.
+     */
+    void updateInputs(List<FileSet> fileSets) throws IOException {
+        byte[] buffer = new byte[8192];
+        for (File file : scan(basedir, fileSets)) {
+            update(file.getPath());
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param outputs Output {@link FileSet} list, can be null.
+     * @return The reason why the target must be executed, or null if the target is up to date.
+     * @throws IOException In case of problems reading the stored fingerprint.
+     */
+    String getOutOfDateReason(List<FileSet> outputs) throws IOException {
+        Properties previous = load();
+        if (previous == null) {
+            return "no previous execution recorded in " + storeFile;
+        }
+        if (!getInputsFingerprint().equals(previous.getProperty(INPUTS_KEY))) {
+            return "the target, its inputs, the properties or the classpaths have changed";
+        }
+        if (!getOutputsFingerprint(outputs).equals(previous.getProperty(OUTPUTS_KEY))) {
+            return "the outputs have changed";
+        }
+        return null;
+    }
+
+    /**
+     * @return The properties exported by the last successful execution.
+     * @throws IOException In case of problems reading the stored fingerprint.
+     */
+    Map<String, String> getExportedProperties() throws IOException {
+        Properties previous = load();
+        if (previous == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String key : new TreeSet<>(previous.stringPropertyNames())) {
+            if (key.startsWith(PROPERTY_KEY_PREFIX)) {
+                properties.put(key.substring(PROPERTY_KEY_PREFIX.length()), previous.getProperty(key));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Records a successful execution.
+     *
+     * @param outputs Output {@link FileSet} list, can be null.
+     * @param exportedProperties Properties exported to the Maven project by the execution.
+     * @throws IOException In case of problems writing the fingerprint.
+     */
+    void save(List<FileSet> outputs, Map<String, String> exportedProperties) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(INPUTS_KEY, getInputsFingerprint());
+        properties.setProperty(OUTPUTS_KEY, getOutputsFingerprint(outputs));
+        for (Map.Entry<String, String> entry : exportedProperties.entrySet()) {
+            properties.setProperty(PROPERTY_KEY_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        // noinspection ResultOfMethodCallIgnored
+        storeFile.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(storeFile.toPath())) {
+            properties.store(out, null);
+        }
+        stored = properties;
+    }
+
+    /**
+     * @return The fingerprint of the target, its inputs, the properties and the classpaths.
+     */
+    String getInputsFingerprint() {
+        try {
+            // digest() resets the state, so work on a copy
+            return Digests.toHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String getOutputsFingerprint(List<FileSet> outputs) {
+        MessageDigest outputsDigest = Digests.newDigest();
+        for (File file : scan(basedir, outputs)) {
+            outputsDigest.update((file.getPath() + '\u0000' + file.length() + '\u0000' + file.lastModified() + '\u0000')
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return Digests.toHex(outputsDigest.digest());
+    }
+
+    private Properties load() throws IOException {
+        if (stored == null && storeFile.isFile()) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(storeFile.toPath())) {
+                properties.load(in);
+            }
+            stored = properties;
+        }
+        return stored;
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @param basedir Directory against which relative fileset directories are resolved.
+     * @param fileSets {@link FileSet} list, can be null.
+     * @return The files matched by the filesets, in a stable order.
+     */
+    static List<File> scan(File basedir, List<FileSet> fileSets) {
+        List<File> files = new ArrayList<>();
+        if (fileSets == null) {
+            return files;
+        }
+        for (FileSet fileSet : fileSets) {
+            String dir = fileSet.getDirectory();
+            File directory = dir == null ? basedir : new File(dir);
+            if (!directory.isAbsolute()) {
+                directory = new File(basedir, dir);
+            }
+            if (!directory.isDirectory()) {
+                continue;
+            }
+
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(directory);
+            if (!fileSet.getIncludes().isEmpty()) {
+                scanner.setIncludes(fileSet.getIncludes().toArray(new String[0]));
+            }
+            if (!fileSet.getExcludes().isEmpty()) {
+                scanner.setExcludes(fileSet.getExcludes().toArray(new String[0]));
+            }
+            scanner.addDefaultExcludes();
+            scanner.scan();
+
+            String[] includedFiles = scanner.getIncludedFiles();
+            Arrays.sort(includedFiles);
+            for (String includedFile : includedFiles) {
+                files.add(new File(directory, includedFile));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Adds a configuration tree to a digest. Attributes are taken in a sorted order and the attributes only used by
+     * Maven to merge configurations are left out, so that equivalent targets give the same digest.
+     *
+     * @param c {@link PlexusConfiguration}
+     * @param digest {@link MessageDigest} to update.
+     */
+    static void update(PlexusConfiguration c, MessageDigest digest) {
+        digest.update(c.getName().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (String name : new TreeSet<>(Arrays.asList(c.getAttributeNames()))) {
+            if (!Xpp3DomUtils.CHILDREN_COMBINATION_MODE_ATTRIBUTE.equals(name)
+                    && !Xpp3DomUtils.SELF_COMBINATION_MODE_ATTRIBUTE.equals(name)) {
+                digest.update((name + '=' + c.getAttribute(name)).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        }
+
+        int count = c.getChildCount();
+        if (count == 0) {
+            String value = c.getValue();
+            if (value != null) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            digest.update((byte) '{');
+            for (int i = 0; i < count; i++) {
+                update(c.getChild(i), digest);
+            }
+            digest.update((byte) '}');
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Location;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+
+/**
+ * The {@link AntFlightRecorder} of the JVMs supporting the JDK Flight Recorder, only loaded by name.
+ */
+final class JfrAntFlightRecorder extends AntFlightRecorder {
+
+    @Override
+    Phase begin(String module, String name) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            return super.begin(module, name);
+        }
+        event.begin();
+        return () -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = module;
+                event.phase = name;
+                event.commit();
+            }
+        };
+    }
+
+    @Override
+    BuildListener newListener(String module) {
+        // the listener costs an event for each task, so it is left out of the executions no recording looks at
+        if (!new TargetEvent().isEnabled() && !new TaskEvent().isEnabled()) {
+            return null;
+        }
+        return new Listener(module);
+    }
+
+    /**
+     * Emits the events of the targets and tasks, which start and finish on the same thread.
+     */
+    private static final class Listener implements BuildListener {
+
+        private final String module;
+
+        /**
+         * The events of the targets and tasks started by the current thread and not finished yet, the innermost last,
+         * or null for the ones started while no recording enabled the events.
+         */
+        private final ThreadLocal<List<Event>> started = ThreadLocal.withInitial(ArrayList::new);
+
+        Listener(String module) {
+            this.module = module;
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            start(new TargetEvent());
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+            TargetEvent targetEvent = (TargetEvent) finish();
+            if (targetEvent != null) {
+                Target target = event.getTarget();
+                targetEvent.module = module;
+                targetEvent.target = target.getName();
+                targetEvent.location = format(target.getLocation());
+                targetEvent.commit();
+            }
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+            start(new TaskEvent());
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+            TaskEvent taskEvent = (TaskEvent) finish();
+            if (taskEvent != null) {
+                Task task = event.getTask();
+                Target target = task.getOwningTarget();
+                taskEvent.module = module;
+                taskEvent.target = target != null ? target.getName() : null;
+                taskEvent.task = task.getTaskName();
+                taskEvent.location = format(task.getLocation());
+                taskEvent.commit();
+            }
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {}
+
+        @Override
+        public void buildFinished(BuildEvent event) {}
+
+        @Override
+        public void messageLogged(BuildEvent event) {}
+
+        private void start(Event event) {
+            if (event.isEnabled()) {
+                event.begin();
+                started.get().add(event);
+            } else {
+                started.get().add(null);
+            }
+        }
+
+        /**
+         * @return The event of the target or task which finished, or null if it is not to be committed.
+         */
+        private Event finish() {
+            List<Event> events = started.get();
+            if (events.isEmpty()) {
+                return null;
+            }
+            Event event = events.remove(events.size() - 1);
+            if (event == null) {
+                return null;
+            }
+            event.end();
+            return event.shouldCommit() ? event : null;
+        }
+
+        private static String format(Location location) {
+            if (location == null || location.getFileName() == null) {
+                return null;
+            }
+            return location.getFileName() + ":" + location.getLineNumber();
+        }
+    }
+
+    @Name("org.apache.maven.antrun.Phase")
+    @Label("Antrun Phase")
+    @Category({"Maven", "Antrun"})
+    @Description("A phase of an execution of the maven-antrun-plugin")
+    static final class PhaseEvent extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("org.apache.maven.antrun.Target")
+    @Label("Ant Target")
+    @Category({"Maven", "Antrun"})
+    @Description("The execution of an Ant target")
+    static final class TargetEvent extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Target")
+        String target;
+
+        @Label("Location")
+        String location;
+    }
+
+    @Name("org.apache.maven.antrun.Task")
+    @Label("Ant Task")
+    @Category({"Maven", "Antrun"})
+    @Description("The execution of an Ant task, including the tasks nested in it")
+    static final class TaskEvent extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Target")
+        String target;
+
+        @Label("Task")
+        String task;
+
+        @Label("Location")
+        String location;
+    }
+}
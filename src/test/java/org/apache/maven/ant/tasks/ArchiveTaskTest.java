@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.TarFileSet;
+import org.apache.tools.ant.types.ZipFileSet;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.apache.maven.plugins.antrun.TestFiles.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link ArchiveTask}.
+ */
+class ArchiveTaskTest {
+
+    @TempDir
+    private File tempDir;
+
+    private Project project;
+
+    private File source;
+
+    private File docs;
+
+    /**
+     * A file of several blocks, compressed with the end of the previous block as dictionary.
+     */
+    private String big;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        project = new Project();
+        project.init();
+        source = new File(tempDir, "source");
+        docs = new File(tempDir, "docs");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; content.length() < 3_500_000; i++) {
+            content.append("line ").append(i).append(" of a file of several blocks\n");
+        }
+        big = content.toString();
+        write(new File(source, "b.txt"), "b");
+        write(new File(source, "a/big.txt"), big);
+        write(new File(source, "empty.txt"), "");
+        write(new File(source, "META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\r\n\r\n");
+        write(new File(docs, "readme.txt"), "readme");
+    }
+
+    @Test
+    void zipEntriesAreSortedWithTheManifestFirst() throws IOException {
+        File zip = new File(tempDir, "archive.jar");
+        newTask(zip, 4).execute();
+
+        List<String> names = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(big, read(zipFile.getInputStream(zipFile.getEntry("a/big.txt"))));
+            assertEquals("", read(zipFile.getInputStream(zipFile.getEntry("empty.txt"))));
+        }
+        assertEquals(
+                Arrays.asList(
+                        "META-INF/",
+                        "META-INF/MANIFEST.MF",
+                        "a/",
+                        "a/big.txt",
+                        "b.txt",
+                        "docs/",
+                        "docs/html/",
+                        "docs/html/readme.txt",
+                        "empty.txt"),
+                names);
+
+        // the local headers are read too
+        try (JarInputStream in = new JarInputStream(new FileInputStream(zip))) {
+            assertNotNull(in.getManifest());
+            assertEquals("a/", in.getNextEntry().getName());
+            assertEquals("a/big.txt", in.getNextJarEntry().getName());
+            assertEquals(big, read(in));
+            assertEquals("b.txt", in.getNextEntry().getName());
+            assertEquals("b", read(in));
+        }
+    }
+
+    @Test
+    void archivesDoNotDependOnTheNumberOfThreads() throws IOException {
+        for (String name : new String[] {"archive.zip", "archive.tar.gz"}) {
+            File one = new File(tempDir, "one-" + name);
+            File several = new File(tempDir, "several-" + name);
+            newTask(one, 1).execute();
+            newTask(several, 7).execute();
+
+            assertArrayEquals(Files.readAllBytes(one.toPath()), Files.readAllBytes(several.toPath()), name);
+        }
+    }
+
+    @Test
+    void tarGzHasTheOwnersOfTheTarFileSets() throws IOException {
+        File tgz = new File(tempDir, "archive.tgz");
+        ArchiveTask task = newTask(tgz, 4);
+        TarFileSet tarFileSet = new TarFileSet();
+        tarFileSet.setProject(project);
+        tarFileSet.setDir(docs);
+        tarFileSet.setPrefix("owned");
+        tarFileSet.setUserName("owner");
+        tarFileSet.setFileMode("600");
+        task.addTarfileset(tarFileSet);
+        task.execute();
+
+        try (TarInputStream in = new TarInputStream(new GZIPInputStream(new FileInputStream(tgz)))) {
+            TarEntry entry;
+            List<String> names = new ArrayList<>();
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                if ("a/big.txt".equals(entry.getName())) {
+                    assertEquals(big, read(in));
+                } else if ("owned/readme.txt".equals(entry.getName())) {
+                    assertEquals("owner", entry.getUserName());
+                    assertEquals(0600, entry.getMode() & 0777);
+                    assertEquals("readme", read(in));
+                }
+            }
+            assertEquals(11, names.size());
+            assertEquals("owned/readme.txt", names.get(names.size() - 1));
+        }
+    }
+
+    @Test
+    void invalidFormatIsRejected() {
+        File archive = new File(tempDir, "archive.zip");
+        ArchiveTask task = newTask(archive, 1);
+        task.setFormat("rar");
+
+        assertThrows(BuildException.class, task::execute);
+        assertFalse(archive.exists());
+    }
+
+    private ArchiveTask newTask(File destfile, int threads) {
+        ArchiveTask task = new ArchiveTask();
+        task.setProject(project);
+        task.setTaskName("archive");
+        task.setDestfile(destfile);
+        task.setThreads(threads);
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(source);
+        task.addFileset(fileSet);
+        ZipFileSet zipFileSet = new ZipFileSet();
+        zipFileSet.setProject(project);
+        zipFileSet.setDir(docs);
+        zipFileSet.setPrefix("docs/html");
+        task.addZipfileset(zipFileSet);
+        return task;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.plugins.antrun.MavenAntRunProject;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link AttachArtifactTask}.
+ */
+class AttachArtifactTaskTest {
+
+    @TempDir
+    Path folder;
+
+    private Project project;
+
+    /**
+     * The attached artifacts, as type:classifier:file name.
+     */
+    private final List<String> attached = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+        project.addReference(
+                AntRunMojo.DEFAULT_MAVEN_PROJECT_REF_REFID, new MavenAntRunProject(new MavenProject()));
+        project.addReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_HELPER_REFID, new RecordingProjectHelper());
+    }
+
+    @Test
+    void singleFileIsAttached() throws IOException {
+        AttachArtifactTask task = createTask();
+        task.setFile(createFile("dist.zip"));
+        task.setClassifier("bin");
+        task.execute();
+
+        assertEquals(Collections.singletonList("zip:bin:dist.zip"), attached);
+    }
+
+    @Test
+    void classifierAndTypeAreDerivedFromTheFileNames() throws IOException {
+        createFile("app-1.0-linux-x64.tar.gz");
+        createFile("app-1.0-windows-x64.zip");
+        createFile("app-1.0.zip");
+
+        AttachArtifactTask task = createTask();
+        task.setPattern("^app-1\\.0(?:-(.*))?\\.(tar\\.gz|zip)$");
+        task.setClassifier("\\1");
+        task.setType("\\2");
+        task.addFileset(createFileSet());
+        task.execute();
+
+        Collections.sort(attached);
+        assertEquals(
+                Arrays.asList(
+                        "tar.gz:linux-x64:app-1.0-linux-x64.tar.gz",
+                        "zip:null:app-1.0.zip",
+                        "zip:windows-x64:app-1.0-windows-x64.zip"),
+                attached);
+    }
+
+    @Test
+    void typeDefaultsToTheExtensionOfEachFile() throws IOException {
+        createFile("a.zip");
+        createFile("b.jar");
+
+        AttachArtifactTask task = createTask();
+        task.setPattern("(.*)\\..*");
+        task.setClassifier("\\1");
+        task.addFileset(createFileSet());
+        task.execute();
+
+        Collections.sort(attached);
+        assertEquals(Arrays.asList("jar:b:b.jar", "zip:a:a.zip"), attached);
+    }
+
+    @Test
+    void nothingIsAttachedWhenAFileDoesNotMatch() throws IOException {
+        createFile("app-linux.zip");
+        createFile("readme.txt");
+
+        AttachArtifactTask task = createTask();
+        task.setPattern("app-(.*)\\.zip");
+        task.setClassifier("\\1");
+        task.addFileset(createFileSet());
+
+        assertThrows(BuildException.class, task::execute);
+        assertEquals(Collections.emptyList(), attached);
+    }
+
+    @Test
+    void filesAreMatchedWithoutClassifierOrType() throws IOException {
+        createFile("app.zip");
+        createFile("readme.txt");
+
+        AttachArtifactTask task = createTask();
+        task.setPattern(".*\\.zip");
+        task.addFileset(createFileSet());
+
+        assertThrows(BuildException.class, task::execute);
+        assertEquals(Collections.emptyList(), attached);
+    }
+
+    @Test
+    void checksumsAreWrittenWhenRequested() throws IOException {
+        File file = createFile("dist.zip");
+
+        AttachArtifactTask task = createTask();
+        task.setFile(file);
+        task.setChecksums("SHA-1, SHA-256");
+        task.execute();
+
+        assertTrue(new File(file.getPath() + ".sha1").isFile());
+        assertTrue(new File(file.getPath() + ".sha256").isFile());
+        assertEquals(Collections.singletonList("zip:null:dist.zip"), attached);
+    }
+
+    @Test
+    void missingFileIsReported() {
+        AttachArtifactTask task = createTask();
+        task.setFile(folder.resolve("missing.zip").toFile());
+
+        BuildException e = assertThrows(BuildException.class, task::execute);
+        assertEquals("File does not exist: " + folder.resolve("missing.zip").toFile(), e.getMessage());
+    }
+
+    @Test
+    void fileOrFilesetIsRequired() {
+        AttachArtifactTask task = createTask();
+
+        BuildException e = assertThrows(BuildException.class, task::execute);
+        assertEquals("File is a required parameter.", e.getMessage());
+    }
+
+    private AttachArtifactTask createTask() {
+        AttachArtifactTask task = new AttachArtifactTask();
+        task.setProject(project);
+        return task;
+    }
+
+    private FileSet createFileSet() {
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(folder.toFile());
+        return fileSet;
+    }
+
+    private File createFile(String name) throws IOException {
+        return Files.createFile(folder.resolve(name)).toFile();
+    }
+
+    private class RecordingProjectHelper implements MavenProjectHelper {
+
+        @Override
+        public void attachArtifact(MavenProject project, String type, String classifier, File file) {
+            attached.add(type + ":" + classifier + ":" + file.getName());
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, File file, String classifier) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, String type, File file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addResource(
+                MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addTestResource(
+                MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
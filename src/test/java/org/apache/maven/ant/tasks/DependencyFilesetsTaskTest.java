@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Reference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Test class for {@link DependencyFilesetsTask}.
+ */
+class DependencyFilesetsTaskTest {
+
+    @TempDir
+    Path folder;
+
+    private Project project;
+
+    private ArtifactRepository localRepository;
+
+    private final Set<Artifact> artifacts = new LinkedHashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        localRepository = new MavenArtifactRepository(
+                "local",
+                folder.toUri().toString(),
+                new DefaultRepositoryLayout(),
+                new ArtifactRepositoryPolicy(),
+                new ArtifactRepositoryPolicy());
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setArtifacts(artifacts);
+
+        project = new Project();
+        project.init();
+        project.addReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID, mavenProject);
+        project.addReference(AntRunMojo.MAVEN_REFID_PREFIX + "local.repository", localRepository);
+    }
+
+    @Test
+    void filesetsContainTheExistingArtifactFiles() throws IOException {
+        addArtifact("org.example", "first", "compile", true);
+        addArtifact("org.example", "second", "test", true);
+        addArtifact("org.example", "missing", "compile", false);
+        // not a dependency, although it is in the local repository
+        Files.createFile(Files.createDirectories(folder.resolve("other")).resolve("other.jar"));
+
+        execute(null);
+
+        assertArrayEquals(
+                new String[] {
+                    path("org/example/first/1.0/first-1.0.jar"), path("org/example/second/1.0/second-1.0.jar")
+                },
+                getIncludedFiles("maven.project.dependencies"));
+        assertArrayEquals(new String[] {"first-1.0.jar"}, getIncludedFiles("org.example:first:jar"));
+        assertArrayEquals(new String[0], getIncludedFiles("org.example:missing:jar"));
+    }
+
+    @Test
+    void filesetsOnlyContainTheSelectedScopes() throws IOException {
+        addArtifact("org.example", "first", "compile", true);
+        addArtifact("org.example", "second", "test", true);
+
+        execute("test");
+
+        assertArrayEquals(
+                new String[] {path("org/example/second/1.0/second-1.0.jar")},
+                getIncludedFiles("maven.project.dependencies"));
+    }
+
+    @Test
+    void emptyFilesetWithoutDependencies() {
+        execute(null);
+
+        assertArrayEquals(new String[0], getIncludedFiles("maven.project.dependencies"));
+    }
+
+    private void addArtifact(String groupId, String artifactId, String scope, boolean exists) throws IOException {
+        Artifact artifact = new DefaultArtifact(
+                groupId, artifactId, "1.0", scope, "jar", null, new DefaultArtifactHandler("jar"));
+        File file = new File(localRepository.getBasedir(), localRepository.pathOf(artifact));
+        if (exists) {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.createFile(file.toPath());
+        }
+        artifact.setFile(file);
+        artifacts.add(artifact);
+    }
+
+    private void execute(String scopes) {
+        DependencyFilesetsTask task = new DependencyFilesetsTask();
+        task.setProject(project);
+        task.setScopes(scopes);
+        task.execute();
+    }
+
+    private String[] getIncludedFiles(String refId) {
+        // used as <fileset refid="..."/>
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setRefid(new Reference(project, refId));
+        return fileSet.getDirectoryScanner(project).getIncludedFiles();
+    }
+
+    private static String path(String path) {
+        return path.replace('/', File.separatorChar);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.FilterSet;
+import org.apache.tools.ant.util.GlobPatternMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.apache.maven.plugins.antrun.TestFiles.read;
+import static org.apache.maven.plugins.antrun.TestFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link ParallelCopyTask}.
+ */
+class ParallelCopyTaskTest {
+
+    @TempDir
+    private File tempDir;
+
+    private Project project;
+
+    private File source;
+
+    private File target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        project = new Project();
+        project.init();
+        source = new File(tempDir, "source");
+        target = new File(tempDir, "target");
+        for (int i = 0; i < 20; i++) {
+            write(new File(source, "dir" + (i % 3) + "/file" + i + ".txt"), "content " + i);
+        }
+    }
+
+    @Test
+    void filesAreCopiedWithTheirModificationTime() throws IOException {
+        newTask().execute();
+
+        for (int i = 0; i < 20; i++) {
+            String path = "dir" + (i % 3) + "/file" + i + ".txt";
+            File copy = new File(target, path);
+            assertEquals("content " + i, read(copy));
+            assertEquals(new File(source, path).lastModified(), copy.lastModified());
+        }
+    }
+
+    @Test
+    void unchangedFilesAreNotCopiedAgain() throws IOException {
+        newTask().execute();
+        File copy = new File(target, "dir0/file0.txt");
+        File changed = new File(target, "dir1/file1.txt");
+        // a copy whose content changed without changing its size or modification time is kept
+        long time = copy.lastModified();
+        write(copy, "CONTENT 0");
+        assertTrue(copy.setLastModified(time));
+        write(changed, "changed");
+
+        newTask().execute();
+
+        assertEquals("CONTENT 0", read(copy));
+        assertEquals("content 1", read(changed));
+
+        ParallelCopyTask task = newTask();
+        task.setOverwrite(true);
+        task.execute();
+        assertEquals("content 0", read(copy));
+    }
+
+    @Test
+    void mappersAreApplied() throws IOException {
+        ParallelCopyTask task = newTask();
+        GlobPatternMapper mapper = new GlobPatternMapper();
+        mapper.setFrom("*.txt");
+        mapper.setTo("*.bak");
+        task.add(mapper);
+
+        task.execute();
+
+        assertEquals("content 4", read(new File(target, "dir1/file4.bak")));
+        assertFalse(new File(target, "dir1/file4.txt").exists());
+    }
+
+    @Test
+    void hardLinksAreNeverWrittenTo() throws IOException {
+        ParallelCopyTask task = newTask();
+        task.setLink("hard");
+        task.execute();
+        File original = new File(source, "dir2/file2.txt");
+        File link = new File(target, "dir2/file2.txt");
+        assertEquals(fileKey(original), fileKey(link));
+
+        // replaced, as by a checkout
+        File kept = new File(tempDir, "kept.txt");
+        Files.move(original.toPath(), kept.toPath());
+        write(original, "changed content");
+        newTask().execute();
+
+        // the target was replaced by a copy, rather than written through the link
+        assertEquals("changed content", read(link));
+        assertEquals("content 2", read(kept));
+        assertNotEquals(fileKey(original), fileKey(link));
+    }
+
+    @Test
+    void filteredFilesAreCopiedByTheCopyTask() throws IOException {
+        write(new File(source, "dir0/filtered.txt"), "@name@");
+        ParallelCopyTask task = newTask();
+        FilterSet filterSet = task.createFilterSet();
+        filterSet.addFilter("name", "value");
+
+        task.execute();
+
+        assertEquals("value", read(new File(target, "dir0/filtered.txt")));
+    }
+
+    @Test
+    void invalidLinkIsRejected() {
+        ParallelCopyTask task = newTask();
+        task.setLink("soft");
+        assertThrows(BuildException.class, task::execute);
+    }
+
+    private ParallelCopyTask newTask() {
+        ParallelCopyTask task = new ParallelCopyTask();
+        task.setProject(project);
+        task.setTaskName("pcopy");
+        task.setTodir(target);
+        task.setThreads(4);
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(source);
+        task.addFileset(fileSet);
+        return task;
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link ParallelTask}.
+ */
+class ParallelTaskTest {
+
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    private Project project;
+
+    private ParallelTask parallel;
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+        project.addBuildListener(new MessageListener());
+        parallel = new ParallelTask();
+        parallel.setProject(project);
+    }
+
+    @Test
+    void nestedTasksRunAtTheSameTime() {
+        // each task waits for the other one, so they only finish if they run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        addTask(task -> await(latch));
+        addTask(task -> await(latch));
+
+        parallel.execute();
+
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    void messagesOfATaskAreLoggedTogether() {
+        CountDownLatch latch = new CountDownLatch(2);
+        addTask(task -> {
+            task.log("a1");
+            await(latch);
+            task.log("a2");
+        });
+        addTask(task -> {
+            task.log("b1");
+            await(latch);
+            task.log("b2");
+        });
+
+        parallel.execute();
+
+        int a1 = messages.indexOf("a1");
+        int b1 = messages.indexOf("b1");
+        assertEquals(4, messages.size());
+        assertEquals("a2", messages.get(a1 + 1));
+        assertEquals("b2", messages.get(b1 + 1));
+    }
+
+    @Test
+    void messagesOfTheThreadsStartedByATaskAreLoggedWithIt() {
+        CountDownLatch latch = new CountDownLatch(2);
+        addTask(task -> {
+            task.log("a1");
+            // a task nested in the task, logging from a thread it starts, like the stream pumpers of exec
+            Task child = new ActionTask(nested -> {
+                Thread thread = new Thread(() -> nested.log("a2"));
+                thread.start();
+                await(latch);
+                join(thread);
+            });
+            child.setProject(project);
+            child.perform();
+            task.log("a3");
+        });
+        addTask(task -> {
+            task.log("b1");
+            await(latch);
+            task.log("b2");
+        });
+
+        parallel.execute();
+
+        int a1 = messages.indexOf("a1");
+        assertEquals(5, messages.size());
+        assertEquals(Arrays.asList("a1", "a2", "a3"), messages.subList(a1, a1 + 3));
+    }
+
+    @Test
+    void listenersAreRestoredAfterTheExecution() {
+        List<BuildListener> listeners = project.getBuildListeners();
+        addTask(task -> task.log("a"));
+
+        parallel.execute();
+
+        assertEquals(listeners, project.getBuildListeners());
+    }
+
+    @Test
+    void listenersAddedLaterSeeTheMessages() {
+        addTask(task -> task.log("a"));
+        parallel.execute();
+        MessageListener listener = new MessageListener();
+        project.addBuildListener(listener);
+
+        parallel.execute();
+
+        assertEquals(Arrays.asList("a", "a", "a"), messages);
+    }
+
+    @Test
+    void threadsLimitsTheRunningTasks() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            addTask(task -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+            });
+        }
+        parallel.setThreads(2);
+
+        parallel.execute();
+
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void firstFailureCancelsTheOtherTasks() {
+        BuildException failure = new BuildException("boom");
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        addTask(task -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+                events.add("timed out");
+            } catch (InterruptedException e) {
+                events.add("interrupted");
+            }
+        });
+        addTask(task -> {
+            try {
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new BuildException(e);
+            }
+            throw failure;
+        });
+
+        BuildException e = assertThrows(BuildException.class, parallel::execute);
+
+        assertSame(failure, e);
+        assertEquals(Arrays.asList("interrupted"), events);
+    }
+
+    @Test
+    void negativeThreadsIsRejected() {
+        parallel.setThreads(-1);
+
+        assertThrows(BuildException.class, parallel::execute);
+    }
+
+    private void addTask(TaskAction action) {
+        Task task = new ActionTask(action);
+        task.setProject(project);
+        parallel.addTask(task);
+    }
+
+    interface TaskAction {
+        void run(Task task);
+    }
+
+    /**
+     * Ant calls the execute method by reflection, so the task class must be public.
+     */
+    public static class ActionTask extends Task {
+
+        private final TaskAction action;
+
+        ActionTask(TaskAction action) {
+            this.action = action;
+        }
+
+        @Override
+        public void execute() {
+            action.run(this);
+        }
+    }
+
+    private class MessageListener implements BuildListener {
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            if (event.getTask() instanceof ActionTask) {
+                messages.add(event.getMessage());
+            }
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {}
+
+        @Override
+        public void buildFinished(BuildEvent event) {}
+
+        @Override
+        public void targetStarted(BuildEvent event) {}
+
+        @Override
+        public void targetFinished(BuildEvent event) {}
+
+        @Override
+        public void taskStarted(BuildEvent event) {}
+
+        @Override
+        public void taskFinished(BuildEvent event) {}
+    }
+
+    private static void await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.apache.maven.plugins.antrun.TestFiles.read;
+import static org.apache.maven.plugins.antrun.TestFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link StageDependenciesTask}.
+ */
+class StageDependenciesTaskTest {
+
+    @TempDir
+    Path folder;
+
+    private Project project;
+
+    private ArtifactRepository localRepository;
+
+    private File todir;
+
+    private final Set<Artifact> artifacts = new LinkedHashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        localRepository = new MavenArtifactRepository(
+                "local",
+                folder.resolve("repository").toUri().toString(),
+                new DefaultRepositoryLayout(),
+                new ArtifactRepositoryPolicy(),
+                new ArtifactRepositoryPolicy());
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setArtifacts(artifacts);
+
+        project = new Project();
+        project.init();
+        project.addReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID, mavenProject);
+        project.addReference(AntRunMojo.MAVEN_REFID_PREFIX + "local.repository", localRepository);
+        todir = folder.resolve("lib").toFile();
+    }
+
+    @Test
+    void dependenciesAreLinkedInTheLayoutOfTheRepository() throws IOException {
+        File first = addArtifact("first", "1.0", "compile");
+        addArtifact("second", "2.0", "test");
+
+        StageDependenciesTask task = newTask();
+        task.setScopes("compile");
+        task.setLink("hard");
+        task.execute();
+
+        File staged = new File(todir, "org/example/first/1.0/first-1.0.jar");
+        assertTrue(Files.isSameFile(first.toPath(), staged.toPath()));
+        assertFalse(new File(todir, "org/example/second").exists());
+    }
+
+    @Test
+    void dependenciesAreCopiedByDefault() throws IOException {
+        File first = addArtifact("first", "1.0", "compile");
+
+        StageDependenciesTask task = newTask();
+        task.execute();
+
+        File staged = new File(todir, "org/example/first/1.0/first-1.0.jar");
+        assertFalse(Files.isSameFile(first.toPath(), staged.toPath()));
+        assertEquals("first-1.0", read(staged));
+    }
+
+    @Test
+    void missingDirectoryIsNotPruned() {
+        StageDependenciesTask task = newTask();
+        task.setPrune(true);
+        task.execute();
+
+        assertFalse(todir.exists());
+    }
+
+    @Test
+    void versionsAreStrippedFromTheFlattenedFiles() throws IOException {
+        File first = addArtifact("first", "1.0", "compile");
+        addArtifact("second", "2.0-SNAPSHOT", "runtime");
+
+        StageDependenciesTask task = newTask();
+        task.setFlatten(true);
+        task.setStripVersion(true);
+        task.setLink("symbolic");
+        task.execute();
+
+        Path staged = todir.toPath().resolve("first.jar");
+        assertTrue(Files.isSymbolicLink(staged));
+        assertEquals(first.toPath().toAbsolutePath(), Files.readSymbolicLink(staged));
+        assertEquals("second-2.0-SNAPSHOT", read(new File(todir, "second.jar")));
+    }
+
+    @Test
+    void copiesAreUpdatedAndOtherFilesPruned() throws IOException {
+        File first = addArtifact("first", "1.0", "compile");
+        StageDependenciesTask task = newTask();
+        task.setFlatten(true);
+        task.setLink("none");
+        task.execute();
+        File staged = new File(todir, "first-1.0.jar");
+        assertFalse(Files.isSameFile(first.toPath(), staged.toPath()));
+        assertEquals("first-1.0", read(staged));
+
+        File old = new File(todir, "old/first-0.9.jar");
+        write(old, "first-0.9");
+        write(first, "first-1.0 rebuilt");
+        task = newTask();
+        task.setFlatten(true);
+        task.setLink("none");
+        task.setPrune(true);
+        task.execute();
+
+        assertEquals("first-1.0 rebuilt", read(staged));
+        assertFalse(old.exists());
+        assertFalse(old.getParentFile().exists());
+    }
+
+    @Test
+    void filesStagedAtTheSamePathAreRejected() throws IOException {
+        addArtifact("first", "1.0", "compile");
+        addArtifact("first", "2.0", "compile");
+
+        StageDependenciesTask task = newTask();
+        task.setStripVersion(true);
+        task.setFlatten(true);
+        assertThrows(BuildException.class, task::execute);
+    }
+
+    private StageDependenciesTask newTask() {
+        StageDependenciesTask task = new StageDependenciesTask();
+        task.setProject(project);
+        task.setTaskName("stagedependencies");
+        task.setTodir(todir);
+        task.setThreads(2);
+        return task;
+    }
+
+    private File addArtifact(String artifactId, String version, String scope) throws IOException {
+        Artifact artifact = new DefaultArtifact(
+                "org.example", artifactId, version, scope, "jar", null, new DefaultArtifactHandler("jar"));
+        File file = new File(localRepository.getBasedir(), localRepository.pathOf(artifact));
+        write(file, artifactId + "-" + version);
+        artifact.setFile(file);
+        artifacts.add(artifact);
+        return file;
+    }
+}
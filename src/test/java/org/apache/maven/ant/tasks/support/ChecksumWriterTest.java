@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link ChecksumWriter}.
+ */
+class ChecksumWriterTest {
+
+    private static final List<String> ALGORITHMS = Arrays.asList("SHA-1", "SHA-256", "SHA-512");
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void checksumsAreWrittenNextToTheFile() throws IOException {
+        File file = createFile("a.zip", "abc");
+
+        List<File> checksumFiles = ChecksumWriter.write(file, ALGORITHMS);
+
+        assertEquals(
+                Arrays.asList(
+                        new File(file.getPath() + ".sha1"),
+                        new File(file.getPath() + ".sha256"),
+                        new File(file.getPath() + ".sha512")),
+                checksumFiles);
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", read(checksumFiles.get(0)));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", read(checksumFiles.get(1)));
+        assertEquals(128, read(checksumFiles.get(2)).length());
+    }
+
+    @Test
+    void newerChecksumIsComputedAgain() throws IOException {
+        File file = createFile("a.zip", "abc");
+        File checksumFile = ChecksumWriter.getChecksumFile(file, "SHA-1");
+        Files.write(checksumFile.toPath(), "stale".getBytes(StandardCharsets.US_ASCII));
+        file.setLastModified(checksumFile.lastModified() - 10_000);
+
+        ChecksumWriter.write(file, Collections.singletonList("SHA-1"));
+
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", read(checksumFile));
+    }
+
+    @Test
+    void filesLargerThanTheBufferAreDigested() throws IOException, NoSuchAlgorithmException {
+        byte[] content = new byte[600 * 1024 + 7];
+        Arrays.fill(content, (byte) 'a');
+        File file = Files.write(folder.resolve("large.zip"), content).toFile();
+
+        ChecksumWriter.write(file, Collections.singletonList("SHA-256"));
+
+        assertEquals(
+                toHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                read(ChecksumWriter.getChecksumFile(file, "SHA-256")));
+    }
+
+    @Test
+    void checksumsAreWrittenInTheBackground() throws IOException {
+        File first = createFile("a.zip", "abc");
+        File second = createFile("b.zip", "");
+
+        try (ChecksumWriter writer = new ChecksumWriter(2)) {
+            writer.submit(first, ALGORITHMS);
+            writer.submit(second, ALGORITHMS);
+            writer.await();
+        }
+
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", read(new File(first.getPath() + ".sha1")));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", read(new File(second.getPath() + ".sha1")));
+    }
+
+    @Test
+    void failureIsReportedWhenWaiting() {
+        try (ChecksumWriter writer = new ChecksumWriter(1)) {
+            writer.submit(folder.resolve("missing.zip").toFile(), ALGORITHMS);
+
+            assertThrows(BuildException.class, writer::await);
+        }
+    }
+
+    @Test
+    void unknownAlgorithmIsRejected() {
+        assertThrows(BuildException.class, () -> ChecksumWriter.checkAlgorithms(Collections.singletonList("SHA-0")));
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        return Files.write(folder.resolve(name), content.getBytes(StandardCharsets.US_ASCII)).toFile();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Test class for {@link ParallelZipWriter}.
+ */
+class ParallelZipWriterTest {
+
+    @TempDir
+    private File tempDir;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void tooManyEntriesForTheZipFormatUseZip64() throws IOException {
+        File zip = new File(tempDir, "many.zip");
+        File file = new File(tempDir, "file.txt");
+        Files.write(file.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        long time = file.lastModified();
+
+        try (ParallelZipWriter writer = new ParallelZipWriter(zip, executor, 2, -1)) {
+            for (int i = 0; i < 70_000; i++) {
+                writer.addDirectory("dir" + i + "/", time, 040755);
+            }
+            writer.addFile("dir69999/file.txt", file, time, 0100644);
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertEquals(70_001, zipFile.size());
+            ZipEntry entry = zipFile.getEntry("dir69999/file.txt");
+            assertNotNull(entry);
+            assertEquals(7, entry.getSize());
+            assertEquals(time / 2000, entry.getTime() / 2000);
+        }
+    }
+}
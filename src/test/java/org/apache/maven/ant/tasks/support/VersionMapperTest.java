@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.ant.tasks.support;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugins.antrun.AntRunMojo;
+import org.apache.maven.project.MavenProject;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Mapper;
+import org.apache.tools.ant.util.FileNameMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link VersionMapper}.
+ */
+class VersionMapperTest {
+
+    private final Project project = new Project();
+
+    @Test
+    void versionsAreRemovedFromTheFilenames() {
+        VersionMapper mapper = new VersionMapper();
+        mapper.setFrom("1.0" + File.pathSeparator + "1.0.1" + File.pathSeparator + "2.3-SNAPSHOT");
+
+        assertArrayEquals(new String[] {"lib" + File.separator + "a.jar"}, mapper.mapFileName(path("lib/a-1.0.jar")));
+        assertArrayEquals(new String[] {"b.jar"}, mapper.mapFileName("b-1.0.1.jar"));
+        assertArrayEquals(new String[] {"c-tests.jar"}, mapper.mapFileName("c-2.3-SNAPSHOT-tests.jar"));
+        assertArrayEquals(new String[] {"d-2.0.jar"}, mapper.mapFileName("d-2.0.jar"));
+    }
+
+    @Test
+    void flattenRemovesTheDirectory() {
+        VersionMapper mapper = new VersionMapper();
+        mapper.setFrom("1.0");
+        mapper.setTo("flatten");
+
+        assertArrayEquals(new String[] {"a.jar"}, mapper.mapFileName(path("lib/a-1.0.jar")));
+    }
+
+    @Test
+    void matcherFindsTheSameVersionAsASearchOfEachVersion() {
+        List<String> versions = Arrays.asList("1.0.10", "1.0.1", "10.1", "1.0", "0.1", "1");
+        VersionMapper.VersionMatcher matcher = new VersionMapper.VersionMatcher(versions);
+
+        for (String fileName : Arrays.asList(
+                "a-1.0.1.jar",
+                "a-1.0.10.jar",
+                "b1-10.1.jar",
+                "c-0.1-1.0.jar",
+                "d-1.jar",
+                "x1.0.10-1.0.1.zip",
+                "1.0.jar",
+                "1.0.10-e-1.0.1.jar")) {
+            assertEquals(searchEachVersion(versions, fileName), matcher.removeVersion(fileName), fileName);
+        }
+    }
+
+    @Test
+    void versionAtTheStartIsIgnored() {
+        VersionMapper mapper = new VersionMapper();
+        mapper.setFrom("1.0");
+
+        assertArrayEquals(new String[] {"1.0.jar"}, mapper.mapFileName("1.0.jar"));
+        assertArrayEquals(new String[] {"1.0-a.jar"}, mapper.mapFileName("1.0-a-1.0.jar"));
+    }
+
+    @Test
+    void dependencyFilesAreMappedFromTheMavenProject() {
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("first", "1.0", null, "first-1.0.jar"));
+        artifacts.add(artifact("second", "2.0", "tests", "second-2.0-tests.jar"));
+        artifacts.add(artifact("third", "3.0-20260101.120000-1", null, "third-3.0-SNAPSHOT.jar"));
+        MavenProject mavenProject = new MavenProject();
+        mavenProject.setArtifacts(artifacts);
+        project.addReference(AntRunMojo.DEFAULT_MAVEN_PROJECT_REFID, mavenProject);
+
+        FileNameMapper mapper = createMapper();
+
+        assertArrayEquals(new String[] {"first.jar"}, mapper.mapFileName(path("repo/first-1.0.jar")));
+        assertArrayEquals(new String[] {"second-tests.jar"}, mapper.mapFileName("second-2.0-tests.jar"));
+        assertArrayEquals(new String[] {"third.jar"}, mapper.mapFileName("third-3.0-SNAPSHOT.jar"));
+        // not a dependency file, but it has one of the versions
+        assertArrayEquals(new String[] {"other.zip"}, mapper.mapFileName("other-1.0.zip"));
+        assertArrayEquals(new String[] {"other-4.0.zip"}, mapper.mapFileName("other-4.0.zip"));
+    }
+
+    @Test
+    void mavenProjectIsRequiredWithoutVersions() {
+        FileNameMapper mapper = createMapper();
+
+        assertThrows(BuildException.class, () -> mapper.mapFileName("first-1.0.jar"));
+    }
+
+    private FileNameMapper createMapper() {
+        // as <mapper classname="..." to="flatten"/>
+        Mapper mapper = new Mapper(project);
+        mapper.setClassname(VersionMapper.class.getName());
+        mapper.setTo("flatten");
+        return mapper.getImplementation();
+    }
+
+    private static Artifact artifact(String artifactId, String version, String classifier, String fileName) {
+        Artifact artifact = new DefaultArtifact(
+                "org.example", artifactId, version, "compile", "jar", classifier, new DefaultArtifactHandler("jar"));
+        artifact.setFile(new File("repo", fileName));
+        return artifact;
+    }
+
+    private static String searchEachVersion(List<String> versions, String fileName) {
+        for (String version : versions) {
+            int index = fileName.indexOf(version, 1);
+            if (index > 0) {
+                return fileName.substring(0, index - 1) + fileName.substring(index + version.length());
+            }
+        }
+        return null;
+    }
+
+    private static String path(String path) {
+        return path.replace('/', File.separatorChar);
+    }
+}
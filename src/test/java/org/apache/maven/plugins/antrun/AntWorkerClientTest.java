@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for {@link AntWorkerClient} and {@link AntWorker}, with a worker running the test classpath.
+ */
+class AntWorkerClientTest {
+
+    @TempDir
+    Path folder;
+
+    private AntWorkerClient client;
+
+    private final List<String> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        List<File> classpath = new ArrayList<>();
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(new File(path));
+        }
+        client = new AntWorkerClient(classpath, 5, folder.resolve("workers").toFile());
+    }
+
+    @Test
+    void targetRunsInTheWorker() throws IOException {
+        AntWorker.Request request = createRequest(
+                "<echo message=\"Hello ${name}\"/><property name=\"greeted\" value=\"${name}\"/>"
+                        + "<pathconvert property=\"classpath\" refid=\"maven.compile.classpath\"/>");
+        request.properties.put("name", "world");
+        request.references.put("maven.compile.classpath", folder.resolve("classes").toString());
+
+        Map<String, String> changed = client.execute(request, (message, priority) -> messages.add(message));
+
+        assertTrue(messages.stream().anyMatch(m -> m.endsWith("Hello world")), messages.toString());
+        assertEquals("world", changed.get("greeted"));
+        assertEquals(folder.resolve("classes").toString(), changed.get("classpath"));
+    }
+
+    @Test
+    void workerIsReused() throws IOException {
+        client.execute(createRequest("<echo message=\"first\"/>"), (message, priority) -> {});
+        String port = readPort();
+
+        client.execute(createRequest("<echo message=\"second\"/>"), (message, priority) -> {});
+
+        assertEquals(port, readPort());
+    }
+
+    @Test
+    void stateDirectoryIsPrivate() throws IOException {
+        assumeTrue(Files.getFileAttributeView(folder, PosixFileAttributeView.class) != null);
+
+        client.execute(createRequest("<echo message=\"private\"/>"), (message, priority) -> {});
+
+        assertEquals(
+                "rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(folder.resolve("workers"))));
+    }
+
+    @Test
+    void stateDirectoryIsReusedWithPrivatePermissions() throws IOException {
+        assumeTrue(Files.getFileAttributeView(folder, PosixFileAttributeView.class) != null);
+        Files.createDirectory(
+                folder.resolve("workers"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxrwxrwx")));
+
+        client.execute(createRequest("<echo message=\"private\"/>"), (message, priority) -> {});
+
+        assertEquals(
+                "rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(folder.resolve("workers"))));
+    }
+
+    @Test
+    void failureIsReported() {
+        AntWorker.Request request = createRequest("<fail message=\"boom\"/>");
+
+        BuildException e = assertThrows(
+                BuildException.class, () -> client.execute(request, (message, priority) -> messages.add(message)));
+        assertTrue(e.getMessage().contains("boom"), e.getMessage());
+        assertEquals(folder.resolve("build.xml").toFile().getAbsolutePath(), e.getLocation().getFileName());
+        assertEquals(1, e.getLocation().getLineNumber());
+    }
+
+    @Test
+    void workerIsNotReusedAfterTheClasspathChanged() throws IOException {
+        File extra = Files.createDirectory(folder.resolve("extra")).toFile();
+        List<File> classpath = new ArrayList<>();
+        classpath.add(extra);
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(new File(path));
+        }
+        client = new AntWorkerClient(classpath, 5, folder.resolve("workers").toFile());
+        client.execute(createRequest("<echo message=\"first\"/>"), (message, priority) -> {});
+
+        assertTrue(extra.setLastModified(extra.lastModified() + 10000));
+        client.execute(createRequest("<echo message=\"second\"/>"), (message, priority) -> {});
+
+        assertEquals(2, folder.resolve("workers").toFile().list((dir, name) -> name.endsWith(".properties")).length);
+    }
+
+    @Test
+    void oversizedStringIsRejected() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[] {0x7f, -1, -1, -1}));
+
+        assertThrows(IOException.class, () -> AntWorker.readString(in));
+    }
+
+    @Test
+    void negativeMapSizeIsRejected() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[] {-1, -1, -1, -1}));
+
+        assertThrows(IOException.class, () -> AntWorker.readMap(in));
+    }
+
+    private AntWorker.Request createRequest(String tasks) {
+        File buildFile = folder.resolve("build.xml").toFile();
+        try {
+            Files.write(
+                    buildFile.toPath(),
+                    ("<project name=\"test\"><target name=\"main\">" + tasks + "</target></project>")
+                            .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        AntWorker.Request request = new AntWorker.Request();
+        request.buildFile = buildFile.getAbsolutePath();
+        request.targetName = "main";
+        request.baseDir = folder.toString();
+        request.outputLevel = Project.MSG_INFO;
+        request.threads = 1;
+        return request;
+    }
+
+    private String readPort() throws IOException {
+        File[] stateFiles = folder.resolve("workers").toFile().listFiles((dir, name) -> name.endsWith(".properties"));
+        assertEquals(1, stateFiles.length);
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(stateFiles[0].toPath())) {
+            state.load(in);
+        }
+        return state.getProperty(AntWorker.PORT);
+    }
+}
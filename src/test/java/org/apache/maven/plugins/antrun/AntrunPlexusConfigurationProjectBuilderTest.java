@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.UnknownElement;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link AntrunPlexusConfigurationProjectBuilder}: the Ant project must be configured as if the file
+ * written by {@link AntrunXmlPlexusConfigurationWriter} had been parsed by Ant.
+ */
+class AntrunPlexusConfigurationProjectBuilderTest {
+
+    private static final String TARGET_NAME = "main";
+
+    @TempDir
+    Path folder;
+
+    private PlexusConfiguration configuration;
+
+    private File file;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new XmlPlexusConfiguration("target");
+        configuration.setAttribute("name", TARGET_NAME);
+        file = folder.resolve("build-main.xml").toFile();
+    }
+
+    /**
+     * Tests elements, attributes, text and locations against the parsed XML file.
+     *
+     * @throws Exception In case of problems
+     */
+    @Test
+    void sameAsParsedFile() throws Exception {
+        configuration.setAttribute("description", "A \"quoted\" <description>");
+        configuration.setAttribute("combine.children", "append");
+        configuration.getChild("echo", true).setAttribute("message", "Hello\nWorld & <x>");
+        PlexusConfiguration echo = new XmlPlexusConfiguration("echo");
+        echo.setValue("line1\nline2\n  line3");
+        configuration.addChild(echo);
+        PlexusConfiguration copy = new XmlPlexusConfiguration("copy");
+        copy.setAttribute("todir", "dir");
+        PlexusConfiguration fileset = new XmlPlexusConfiguration("fileset");
+        fileset.setAttribute("dir", "src");
+        fileset.setAttribute("id", "sources");
+        copy.addChild(fileset);
+        configuration.addChild(copy);
+        configuration.getChild("fail", true).setAttribute("message", "boom");
+
+        assertSameAsParsedFile("");
+    }
+
+    /**
+     * Tests that prefixed elements get the namespace they are bound to.
+     *
+     * @throws Exception In case of problems
+     */
+    @Test
+    void taskPrefix() throws Exception {
+        configuration.setAttribute("xmlns:mvn", AntRunMojo.TASK_URI);
+        configuration.getChild("mvn:attachartifact", true).setAttribute("file", "foo.zip");
+        PlexusConfiguration foo = new XmlPlexusConfiguration("foo:bar");
+        foo.setAttribute("xmlns:foo", "antlib:org.example");
+        foo.getChild("foo:baz", true).setValue("text");
+        configuration.addChild(foo);
+
+        assertSameAsParsedFile("");
+        assertSameAsParsedFile("custom");
+    }
+
+    /**
+     * Tests several targets, with dependencies and a target without tasks.
+     *
+     * @throws Exception In case of problems
+     */
+    @Test
+    void severalTargets() throws Exception {
+        configuration.setAttribute("name", "first");
+        configuration.getChild("echo", true).setAttribute("message", "first");
+        PlexusConfiguration second = new XmlPlexusConfiguration("target");
+        second.setAttribute("name", "second");
+        second.setAttribute("depends", "first");
+        PlexusConfiguration echo = new XmlPlexusConfiguration("echo");
+        echo.setValue("second\n");
+        second.addChild(echo);
+        PlexusConfiguration main = new XmlPlexusConfiguration("target");
+        main.setAttribute("name", TARGET_NAME);
+        main.setAttribute("depends", "first,second");
+
+        assertSameAsParsedFile(Arrays.asList(configuration, second, main), "");
+    }
+
+    /**
+     * Tests a target extending a missing extension point, which is ignored.
+     *
+     * @throws Exception In case of problems
+     */
+    @Test
+    void missingExtensionPointIsIgnored() throws Exception {
+        configuration.setAttribute("extensionOf", "missing");
+        configuration.setAttribute("onMissingExtensionPoint", "ignore");
+        configuration.getChild("echo", true).setAttribute("message", "extension");
+
+        assertSameAsParsedFile("");
+    }
+
+    /**
+     * Tests that a target extending a missing extension point fails by default, as when the file is parsed.
+     */
+    @Test
+    void missingExtensionPointFails() {
+        configuration.setAttribute("extensionOf", "missing");
+        Project project = new Project();
+        AntrunPlexusConfigurationProjectBuilder builder = new AntrunPlexusConfigurationProjectBuilder(file, "");
+
+        assertThrows(BuildException.class, () -> builder.configureProject(project, configuration, TARGET_NAME));
+    }
+
+    /**
+     * Tests that an element with an unbound prefix is rejected.
+     */
+    @Test
+    void unboundPrefix() {
+        configuration.getChild("mvn:attachartifact", true);
+        Project project = new Project();
+        AntrunPlexusConfigurationProjectBuilder builder = new AntrunPlexusConfigurationProjectBuilder(file, "");
+
+        BuildException e =
+                assertThrows(BuildException.class, () -> builder.configureProject(project, configuration, TARGET_NAME));
+        assertEquals(4, e.getLocation().getLineNumber());
+        assertEquals("<mvn:attachartifact />", builder.getStartTag(4));
+    }
+
+    private void assertSameAsParsedFile(String customTaskPrefix) throws Exception {
+        assertSameAsParsedFile(Collections.singletonList(configuration), customTaskPrefix);
+    }
+
+    private void assertSameAsParsedFile(List<PlexusConfiguration> configurations, String customTaskPrefix)
+            throws Exception {
+        new AntrunXmlPlexusConfigurationWriter().write(configurations, file, customTaskPrefix, TARGET_NAME);
+        Project parsed = new Project();
+        ProjectHelper.configureProject(parsed, file);
+
+        Project built = new Project();
+        new AntrunPlexusConfigurationProjectBuilder(file, customTaskPrefix)
+                .configureProject(built, configurations, TARGET_NAME);
+
+        assertEquals(parsed.getName(), built.getName());
+        assertEquals(built, built.getReference(built.getName()));
+        assertEquals(parsed.getUserProperties(), built.getUserProperties());
+        assertEquals(parsed.getDefaultTarget(), built.getDefaultTarget());
+        assertEquals(parsed.getTargets().keySet(), built.getTargets().keySet());
+
+        for (String name : parsed.getTargets().keySet()) {
+            Target parsedTarget = parsed.getTargets().get(name);
+            Target builtTarget = built.getTargets().get(name);
+            assertEquals(parsedTarget.getLocation(), builtTarget.getLocation());
+            assertEquals(parsedTarget.getDescription(), builtTarget.getDescription());
+            assertEquals(
+                    Collections.list(parsedTarget.getDependencies()),
+                    Collections.list(builtTarget.getDependencies()));
+            assertEquals(parsedTarget.getTasks().length, builtTarget.getTasks().length);
+            for (int i = 0; i < parsedTarget.getTasks().length; i++) {
+                assertSameElement(parsedTarget.getTasks()[i], builtTarget.getTasks()[i]);
+            }
+        }
+        for (String id : parsed.getReferences().keySet()) {
+            if (parsed.getReference(id) instanceof UnknownElement) {
+                assertSameElement((Task) parsed.getReference(id), (Task) built.getReference(id));
+            }
+        }
+    }
+
+    private static void assertSameElement(Task parsedTask, Task builtTask) {
+        UnknownElement parsed = (UnknownElement) parsedTask;
+        UnknownElement built = (UnknownElement) builtTask;
+        assertEquals(parsed.getQName(), built.getQName());
+        assertEquals(parsed.getNamespace(), built.getNamespace());
+        assertEquals(parsed.getTaskType(), built.getTaskType());
+        assertEquals(parsed.getTaskName(), built.getTaskName());
+        assertEquals(parsed.getLocation(), built.getLocation(), parsed.getQName());
+        assertEquals(parsed.getWrapper().getAttributeMap(), built.getWrapper().getAttributeMap());
+
+        List<UnknownElement> parsedChildren = children(parsed);
+        List<UnknownElement> builtChildren = children(built);
+        if (parsedChildren.isEmpty()) {
+            assertEquals(
+                    parsed.getWrapper().getText().toString(),
+                    built.getWrapper().getText().toString());
+        }
+        assertEquals(parsedChildren.size(), builtChildren.size());
+        for (int i = 0; i < parsedChildren.size(); i++) {
+            assertSameElement(parsedChildren.get(i), builtChildren.get(i));
+        }
+    }
+
+    private static List<UnknownElement> children(UnknownElement element) {
+        return element.getChildren() == null ? Collections.emptyList() : element.getChildren();
+    }
+}
@@ -31,6 +31,9 @@ import org.junit.jupiter.api.io.TempDir;
 import org.xmlunit.builder.Input;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.xmlunit.matchers.CompareMatcher.isIdenticalTo;
 
 /**
@@ -113,6 +116,25 @@ class AntrunXmlPlexusConfigurationWriterTest {
         assertXmlIsExpected("/configuration-writer/combine-attributes.xml", file);
     }
 
+    /**
+     * Tests that the file is not rewritten when the configuration is unchanged.
+     *
+     * @throws IOException In case of problems
+     */
+    @Test
+    void unchangedConfigurationKeepsFile() throws Exception {
+        configuration.getChild("echo", true).setAttribute("message", "Hello");
+        configurationWriter.write(configuration, file, "", TARGET_NAME);
+        assertTrue(file.setLastModified(1000L));
+
+        configurationWriter.write(configuration, file, "", TARGET_NAME);
+        assertEquals(1000L, file.lastModified());
+
+        configuration.getChild("echo").setAttribute("message", "Bye");
+        configurationWriter.write(configuration, file, "", TARGET_NAME);
+        assertNotEquals(1000L, file.lastModified());
+    }
+
     private void assertXmlIsExpected(String expected, File file) {
         assertThat(Input.from(file), isIdenticalTo(Input.from(getClass().getResourceAsStream(expected))));
     }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.tools.ant.Project;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link BufferedLogWriter}.
+ */
+class BufferedLogWriterTest {
+
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+    private final BufferedLogWriter writer = new BufferedLogWriter();
+
+    @Test
+    void messagesAreWrittenWhenTheBufferIsClosed() {
+        BufferedLogWriter.Buffer buffer = writer.open(recordingLog(), "[module] ");
+        buffer.add("first", Project.MSG_INFO);
+        buffer.add("second", Project.MSG_WARN);
+
+        assertTrue(lines.isEmpty());
+
+        buffer.close();
+
+        assertEquals(Arrays.asList("info [module] first", "warn [module] second"), lines);
+    }
+
+    @Test
+    void messagesOfAnExecutionAreWrittenTogether() throws InterruptedException {
+        BufferedLogWriter.Buffer a = writer.open(recordingLog(), "[a] ");
+        BufferedLogWriter.Buffer b = writer.open(recordingLog(), "[b] ");
+        CountDownLatch latch = new CountDownLatch(2);
+        Thread thread = new Thread(() -> {
+            a.add("1", Project.MSG_INFO);
+            await(latch);
+            a.add("2", Project.MSG_INFO);
+            a.close();
+        });
+        thread.start();
+        b.add("1", Project.MSG_INFO);
+        await(latch);
+        b.add("2", Project.MSG_INFO);
+        b.close();
+        thread.join();
+
+        assertEquals(4, lines.size());
+        int a1 = lines.indexOf("info [a] 1");
+        int b1 = lines.indexOf("info [b] 1");
+        assertEquals("info [a] 2", lines.get(a1 + 1));
+        assertEquals("info [b] 2", lines.get(b1 + 1));
+    }
+
+    @Test
+    void longOutputIsWrittenInOneBlock() throws InterruptedException {
+        BufferedLogWriter.Buffer a = writer.open(recordingLog(), "[a] ");
+        BufferedLogWriter.Buffer b = writer.open(recordingLog(), "[b] ");
+        CountDownLatch latch = new CountDownLatch(2);
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                a.add(String.valueOf(i), Project.MSG_INFO);
+            }
+            await(latch);
+            a.close();
+        });
+        thread.start();
+        b.add("1", Project.MSG_INFO);
+        await(latch);
+        b.close();
+        thread.join();
+
+        assertEquals(5001, lines.size());
+        int a0 = lines.indexOf("info [a] 0");
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("info [a] " + i, lines.get(a0 + i));
+        }
+    }
+
+    @Test
+    void interruptedExecutionStillWritesItsMessagesInOrder() {
+        BufferedLogWriter.Buffer first = writer.open(recordingLog(), "");
+        BufferedLogWriter.Buffer second = writer.open(recordingLog(), "");
+        first.add("message 0", Project.MSG_DEBUG);
+        second.add("message 1", Project.MSG_DEBUG);
+        Thread.currentThread().interrupt();
+
+        first.close();
+        assertTrue(Thread.interrupted());
+        second.close();
+
+        assertEquals(Arrays.asList("debug message 0", "debug message 1"), lines);
+    }
+
+    /**
+     * @return A log recording the level and the text of each message.
+     */
+    private Log recordingLog() {
+        return (Log) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Log.class}, (p, m, args) -> {
+            if (m.getName().startsWith("is")) {
+                return true;
+            }
+            lines.add(m.getName() + " " + args[0]);
+            return null;
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.apache.maven.plugins.antrun.TestFiles.read;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link BuildCache}.
+ */
+class BuildCacheTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void storedOutputsAreRestored() throws IOException {
+        File basedir = new File(tempDir, "module");
+        File first = write(new File(basedir, "target/generated/a.txt"), "a");
+        File second = write(new File(basedir, "target/generated/sub/b.txt"), "b");
+        BuildCache cache = new BuildCache(new File(tempDir, "cache"), Long.MAX_VALUE);
+
+        assertNull(cache.restore("key", basedir));
+        assertTrue(cache.store(
+                "key", basedir, Arrays.asList(first, second), Collections.singletonMap("generated", "true")));
+
+        // mvn clean
+        Files.delete(first.toPath());
+        Files.delete(second.toPath());
+        Map<String, String> exportedProperties = cache.restore("key", basedir);
+
+        assertEquals(Collections.singletonMap("generated", "true"), exportedProperties);
+        assertEquals("a", read(first));
+        assertEquals("b", read(second));
+        assertNull(cache.restore("other", basedir));
+    }
+
+    @Test
+    void outputsOutsideOfTheBasedirAreNotStored() throws IOException {
+        File basedir = new File(tempDir, "module");
+        File outside = write(new File(tempDir, "elsewhere/a.txt"), "a");
+        BuildCache cache = new BuildCache(new File(tempDir, "cache"), Long.MAX_VALUE);
+
+        assertFalse(cache.store("key", basedir, Collections.singletonList(outside), Collections.emptyMap()));
+        assertNull(cache.restore("key", basedir));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        File basedir = new File(tempDir, "module");
+        File output = write(new File(basedir, "out.txt"), "0123456789");
+        BuildCache cache = new BuildCache(new File(tempDir, "cache"), 25);
+
+        cache.store("first", basedir, Collections.singletonList(output), Collections.emptyMap());
+        cache.store("second", basedir, Collections.singletonList(output), Collections.emptyMap());
+        setLastUsed(new File(tempDir, "cache/first"), 1000);
+        setLastUsed(new File(tempDir, "cache/second"), 2000);
+        // using the first entry makes the second one the least recently used
+        cache.restore("first", basedir);
+        cache.store("third", basedir, Collections.singletonList(output), Collections.emptyMap());
+
+        assertEquals("0123456789", read(output));
+        assertNotNull(cache.restore("first", basedir));
+        assertNull(cache.restore("second", basedir));
+        assertNotNull(cache.restore("third", basedir));
+        assertEquals(2, new File(tempDir, "cache").list().length);
+    }
+
+    private static void setLastUsed(File entry, long time) {
+        assertTrue(new File(entry, "entry.properties").setLastModified(time));
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarOutputStream;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Taskdef;
+import org.apache.tools.ant.types.Reference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for {@link ClassLoaderCache} and {@link SharedClassLoaderProject}.
+ */
+class ClassLoaderCacheTest {
+
+    @TempDir
+    Path folder;
+
+    private final ClassLoaderCache cache = new ClassLoaderCache();
+
+    @Test
+    void executionsShareTheLoaderOfATaskdef() throws IOException {
+        File jar = createJar("tasks.jar");
+
+        SharedClassLoaderProject first = createProject(jar);
+        SharedClassLoaderProject second = createProject(jar);
+        taskdef(first);
+        taskdef(second);
+
+        Object loader = first.getReference("ant.loader.tasks.classpath");
+        assertInstanceOf(AntClassLoader.class, loader);
+        assertSame(loader, second.getReference("ant.loader.tasks.classpath"));
+        assertInstanceOf(Echo.class, second.createTask("customecho"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void subProjectsShareTheLoader() throws IOException {
+        SharedClassLoaderProject project = createProject(createJar("tasks.jar"));
+        Project subProject = project.createSubProject();
+        subProject.addReference("tasks.classpath", project.getReference("tasks.classpath"));
+
+        assertSame(
+                project.getReference("ant.loader.tasks.classpath"),
+                subProject.getReference("ant.loader.tasks.classpath"));
+    }
+
+    @Test
+    void directoriesAreNotShared() throws IOException {
+        SharedClassLoaderProject project = createProject(Files.createDirectory(folder.resolve("classes")).toFile());
+
+        assertNull(project.getReference("ant.loader.tasks.classpath"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rebuiltJarGetsANewLoader() throws IOException {
+        File jar = createJar("tasks.jar");
+        Object loader = createProject(jar).getReference("ant.loader.tasks.classpath");
+
+        jar.setLastModified(jar.lastModified() - 10_000);
+
+        assertNotSame(loader, createProject(jar).getReference("ant.loader.tasks.classpath"));
+    }
+
+    @Test
+    void loadersAreClosedWithTheCache() throws IOException {
+        File jar = createJar("tasks.jar");
+        Object loader = createProject(jar).getReference("ant.loader.tasks.classpath");
+
+        cache.close();
+
+        assertEquals(0, cache.size());
+        assertNotSame(loader, createProject(jar).getReference("ant.loader.tasks.classpath"));
+    }
+
+    @Test
+    void unusedLoadersAreEvicted() throws IOException {
+        SharedClassLoaderProject used = createProject(createJar("used.jar"));
+        assertNotNull(used.getReference("ant.loader.tasks.classpath"));
+
+        for (int i = 0; i < ClassLoaderCache.MAX_UNUSED + 2; i++) {
+            SharedClassLoaderProject project = createProject(createJar("tasks-" + i + ".jar"));
+            assertNotNull(project.getReference("ant.loader.tasks.classpath"));
+            project.releaseClassLoaders();
+        }
+
+        assertEquals(ClassLoaderCache.MAX_UNUSED + 1, cache.size());
+        used.releaseClassLoaders();
+        assertEquals(ClassLoaderCache.MAX_UNUSED, cache.size());
+    }
+
+    private SharedClassLoaderProject createProject(File classpathElement) {
+        SharedClassLoaderProject project = new SharedClassLoaderProject(cache);
+        ProjectTemplate.init(project);
+        project.enableLoaderReuse();
+        project.addReference(
+                "tasks.classpath", new org.apache.tools.ant.types.Path(project, classpathElement.getPath()));
+        return project;
+    }
+
+    private static void taskdef(Project project) {
+        Taskdef taskdef = new Taskdef();
+        taskdef.setProject(project);
+        taskdef.setName("customecho");
+        taskdef.setClassname(Echo.class.getName());
+        taskdef.setClasspathRef(new Reference(project, "tasks.classpath"));
+        taskdef.execute();
+    }
+
+    private File createJar(String name) throws IOException {
+        File jar = folder.resolve(name).toFile();
+        try (OutputStream out = Files.newOutputStream(jar.toPath());
+                JarOutputStream jarOut = new JarOutputStream(out)) {
+            jarOut.closeEntry();
+        }
+        return jar;
+    }
+}
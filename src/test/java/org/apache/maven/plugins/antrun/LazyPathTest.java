@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.types.Reference;
+import org.apache.tools.ant.types.Resource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link LazyPath}.
+ */
+class LazyPathTest {
+
+    private final File a = new File("a.jar").getAbsoluteFile();
+
+    private final File b = new File("b.jar").getAbsoluteFile();
+
+    @Test
+    void elementsAreComputedOnFirstUse() {
+        Project project = new Project();
+        AtomicInteger calls = new AtomicInteger();
+        Path path = new LazyPath(project, () -> {
+            calls.incrementAndGet();
+            return Arrays.asList(a.getPath(), b.getPath());
+        });
+        project.addReference("lazy", path);
+        assertEquals(0, calls.get());
+
+        assertArrayEquals(new String[] {a.getPath(), b.getPath()}, path.list());
+        assertEquals(a.getPath() + File.pathSeparator + b.getPath(), path.toString());
+        assertEquals(2, path.size());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void iteratorAndReferencesSeeTheElements() {
+        Project project = new Project();
+        project.addReference("lazy", new LazyPath(project, () -> Arrays.asList(a.getPath(), b.getPath())));
+
+        Path path = new Path(project);
+        path.createPath().setRefid(new Reference(project, "lazy"));
+        assertArrayEquals(new String[] {a.getPath(), b.getPath()}, path.list());
+
+        Iterator<Resource> resources = ((Path) project.getReference("lazy")).iterator();
+        assertEquals(a.getPath(), resources.next().toString());
+        assertEquals(b.getPath(), resources.next().toString());
+        assertFalse(resources.hasNext());
+    }
+
+    @Test
+    void failureIsReportedToAnt() {
+        Project project = new Project();
+        Path path = new LazyPath(project, () -> {
+            throw new IllegalStateException("unresolved");
+        });
+
+        BuildException e = assertThrows(BuildException.class, path::list);
+        assertEquals("Unable to compute the path: unresolved", e.getMessage());
+        e = assertThrows(BuildException.class, path::size);
+        assertEquals("Unable to compute the path: unresolved", e.getMessage());
+    }
+
+    @Test
+    void elementsAreComputedAgainAfterAFailure() {
+        Project project = new Project();
+        AtomicInteger calls = new AtomicInteger();
+        Path path = new LazyPath(project, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("unresolved");
+            }
+            return Arrays.asList(a.getPath());
+        });
+
+        assertThrows(BuildException.class, path::list);
+
+        assertArrayEquals(new String[] {a.getPath()}, path.list());
+        assertEquals(2, calls.get());
+    }
+}
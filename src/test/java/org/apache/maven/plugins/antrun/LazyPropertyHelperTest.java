@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link LazyPropertyHelper}: the properties must behave as if they had all been set eagerly.
+ */
+class LazyPropertyHelperTest {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final List<String> lookups = new ArrayList<>();
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        values.put("a", "a-value");
+        values.put("b", "b-value");
+        values.put("user.dir", "overridden");
+
+        project = new Project();
+        LazyPropertyHelper helper = LazyPropertyHelper.install(project);
+        project.init();
+        project.setUserProperty("user", "user-value");
+        values.put("user", "source-value");
+        helper.setSource(new LazyPropertyHelper.PropertySource() {
+            @Override
+            public Object getProperty(String name) {
+                lookups.add(name);
+                return values.get(name);
+            }
+
+            @Override
+            public Set<String> getPropertyNames() {
+                return values.keySet();
+            }
+        });
+    }
+
+    @Test
+    void propertiesAreDefinedOnDemand() {
+        assertSame(LazyPropertyHelper.class, PropertyHelper.getPropertyHelper(project).getClass());
+        assertEquals("a-value", project.getProperty("a"));
+        assertEquals("a-value", project.replaceProperties("${a}"));
+        assertNull(project.getProperty("missing"));
+        assertNull(project.getProperty("missing"));
+        assertEquals(2, lookups.size());
+    }
+
+    @Test
+    void sourceOverridesExistingProperties() {
+        assertEquals("overridden", project.getProperty("user.dir"));
+    }
+
+    @Test
+    void userPropertiesTakePrecedence() {
+        assertEquals("user-value", project.getProperty("user"));
+    }
+
+    @Test
+    void newPropertyIsIgnored() {
+        project.setNewProperty("a", "other");
+        assertEquals("a-value", project.getProperty("a"));
+    }
+
+    @Test
+    void setPropertyOverrides() {
+        project.setProperty("a", "other");
+        assertEquals("other", project.getProperty("a"));
+        assertTrue(lookups.isEmpty());
+    }
+
+    @Test
+    void getPropertiesHoldsAllProperties() {
+        project.setProperty("a", "other");
+        Map<String, Object> properties = project.getProperties();
+        assertEquals("other", properties.get("a"));
+        assertEquals("b-value", properties.get("b"));
+        assertEquals("user-value", properties.get("user"));
+        assertEquals("overridden", properties.get("user.dir"));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.ant.tasks.AttachArtifactTask;
+import org.apache.maven.ant.tasks.ParallelTask;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.taskdefs.Parallel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for {@link MavenTaskDefinitions}.
+ */
+class MavenTaskDefinitionsTest {
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+    }
+
+    @Test
+    void tasksAreDefinedInTheNamespace() {
+        MavenTaskDefinitions.define(project, false);
+
+        assertInstanceOf(
+                AttachArtifactTask.class,
+                project.createTask(ProjectHelper.genComponentName(AntRunMojo.TASK_URI, "attachartifact")));
+        assertInstanceOf(
+                ParallelTask.class,
+                project.createTask(ProjectHelper.genComponentName(AntRunMojo.TASK_URI, "parallel")));
+        assertNull(ComponentHelper.getComponentHelper(project).getDefinition("attachartifact"));
+    }
+
+    @Test
+    void antlibIsNotParsedWhenATaskIsCreated() {
+        MessageListener listener = new MessageListener();
+        project.addBuildListener(listener);
+        MavenTaskDefinitions.define(project, false);
+
+        assertInstanceOf(
+                AttachArtifactTask.class,
+                project.createTask(ProjectHelper.genComponentName(AntRunMojo.TASK_URI, "attachartifact")));
+        assertFalse(
+                listener.messages.stream().anyMatch(message -> message.startsWith("parsing buildfile")),
+                listener.messages::toString);
+    }
+
+    @Test
+    void antTasksAreNotReplacedInTheDefaultNamespace() {
+        assertEquals(Collections.singletonList("parallel"), MavenTaskDefinitions.define(project, true));
+
+        assertInstanceOf(AttachArtifactTask.class, project.createTask("attachartifact"));
+        assertInstanceOf(Parallel.class, project.createTask("parallel"));
+    }
+
+    private static class MessageListener implements BuildListener {
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            messages.add(event.getMessage());
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {}
+
+        @Override
+        public void buildFinished(BuildEvent event) {}
+
+        @Override
+        public void targetStarted(BuildEvent event) {}
+
+        @Override
+        public void targetFinished(BuildEvent event) {}
+
+        @Override
+        public void taskStarted(BuildEvent event) {}
+
+        @Override
+        public void taskFinished(BuildEvent event) {}
+    }
+}
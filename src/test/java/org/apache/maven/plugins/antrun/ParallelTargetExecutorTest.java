@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link ParallelTargetExecutor}.
+ */
+class ParallelTargetExecutorTest {
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+    }
+
+    @Test
+    void independentTargetsRunAtTheSameTime() {
+        // each target waits for the other one, so they only finish if they run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        addTarget("a", "", () -> await(latch));
+        addTarget("b", "", () -> await(latch));
+        addTarget("main", "a,b", () -> {});
+
+        new ParallelTargetExecutor(2).executeTargets(project, new String[] {"main"});
+
+        assertEquals(3, executed.size());
+        assertEquals("main", executed.get(2));
+    }
+
+    @Test
+    void targetsRunAfterTheirDependencies() {
+        addTarget("a", "", () -> {});
+        addTarget("b", "a", () -> {});
+        addTarget("c", "b", () -> {});
+        addTarget("main", "c,a", () -> {});
+
+        new ParallelTargetExecutor(4).executeTargets(project, new String[] {"main"});
+
+        assertEquals(Arrays.asList("a", "b", "c", "main"), executed);
+    }
+
+    @Test
+    void failureStopsTheBuild() {
+        BuildException failure = new BuildException("boom");
+        addTarget("a", "", () -> {
+            throw failure;
+        });
+        addTarget("b", "a", () -> {});
+        addTarget("main", "b", () -> {});
+
+        BuildException e = assertThrows(
+                BuildException.class,
+                () -> new ParallelTargetExecutor(2).executeTargets(project, new String[] {"main"}));
+        assertSame(failure, e);
+        assertEquals(Collections.singletonList("a"), executed);
+    }
+
+    private void addTarget(String name, String depends, Runnable action) {
+        Target target = new Target();
+        target.setProject(project);
+        target.setName(name);
+        if (!depends.isEmpty()) {
+            target.setDepends(depends);
+        }
+        Task task = new RecordingTask(() -> {
+            executed.add(name);
+            action.run();
+        });
+        task.setProject(project);
+        task.setOwningTarget(target);
+        target.addTask(task);
+        project.addTarget(target);
+    }
+
+    /**
+     * Ant calls the execute method by reflection, so the task class must be public.
+     */
+    public static class RecordingTask extends Task {
+
+        private final Runnable action;
+
+        RecordingTask(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void execute() {
+            action.run();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Taskdef;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for {@link ProjectTemplate}.
+ */
+class ProjectTemplateTest {
+
+    @Test
+    void projectIsInitializedAsByAnt() {
+        Project expected = new Project();
+        expected.init();
+
+        Project project = new Project();
+        ProjectTemplate.init(project);
+
+        assertEquals(
+                ComponentHelper.getComponentHelper(expected).getAntTypeTable().keySet(),
+                ComponentHelper.getComponentHelper(project).getAntTypeTable().keySet());
+        assertEquals(
+                getRestrictedClassNames(expected, "ant:if:blank"), getRestrictedClassNames(project, "ant:if:blank"));
+        assertEquals(expected.getProperty(MagicNames.ANT_VERSION), project.getProperty(MagicNames.ANT_VERSION));
+        assertInstanceOf(Echo.class, project.createTask("echo"));
+    }
+
+    @Test
+    void definitionsDoNotLeakToOtherProjects() {
+        Project first = new Project();
+        ProjectTemplate.init(first);
+        Taskdef taskdef = new Taskdef();
+        taskdef.setProject(first);
+        taskdef.setName("customecho");
+        taskdef.setClassname(Echo.class.getName());
+        taskdef.execute();
+
+        Project second = new Project();
+        ProjectTemplate.init(second);
+
+        assertNotNull(ComponentHelper.getComponentHelper(first).getDefinition("customecho"));
+        assertNull(ComponentHelper.getComponentHelper(second).getDefinition("customecho"));
+    }
+
+    private static List<String> getRestrictedClassNames(Project project, String name) {
+        List<String> classNames = new ArrayList<>();
+        for (AntTypeDefinition definition :
+                ComponentHelper.getComponentHelper(project).getRestrictedDefinitions(name)) {
+            classNames.add(definition.getClassName());
+        }
+        return classNames;
+    }
+}
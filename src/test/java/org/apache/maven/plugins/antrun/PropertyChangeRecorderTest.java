@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.tools.ant.Project;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link PropertyChangeRecorder}.
+ */
+class PropertyChangeRecorderTest {
+
+    private Project project;
+
+    private PropertyChangeRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+        project.setProperty("existing", "value");
+        project.setUserProperty("user", "value");
+        recorder = PropertyChangeRecorder.install(project);
+    }
+
+    @Test
+    void initialPropertiesAreNotRecorded() {
+        assertEquals(Collections.emptyList(), recorder.getNames());
+    }
+
+    @Test
+    void createdAndChangedPropertiesAreRecorded() {
+        project.setNewProperty("created", "value");
+        project.setProperty("existing", "changed");
+        project.setProperty("created", "again");
+        assertEquals(Arrays.asList("created", "existing"), recorder.getNames());
+    }
+
+    @Test
+    void ignoredOrUnchangedPropertiesAreNotRecorded() {
+        project.setNewProperty("existing", "ignored");
+        project.setProperty("existing", "value");
+        project.setProperty("user", "ignored");
+        assertEquals(Collections.emptyList(), recorder.getNames());
+    }
+
+    @Test
+    void lazyPropertiesAreNotRecorded() {
+        Project lazyProject = new Project();
+        LazyPropertyHelper helper = LazyPropertyHelper.install(lazyProject);
+        lazyProject.init();
+        helper.setSource(new LazyPropertyHelper.PropertySource() {
+            @Override
+            public Object getProperty(String name) {
+                return "maven".equals(name) ? "value" : null;
+            }
+
+            @Override
+            public Set<String> getPropertyNames() {
+                return Collections.singleton("maven");
+            }
+        });
+        PropertyChangeRecorder lazyRecorder = PropertyChangeRecorder.install(lazyProject);
+
+        assertEquals("value", lazyProject.getProperty("maven"));
+        lazyProject.setNewProperty("maven", "ignored");
+        assertEquals(Collections.emptyList(), lazyRecorder.getNames());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+/**
+ * Test class for {@link SessionEndListener}.
+ */
+class SessionEndListenerTest {
+
+    private final List<ExecutionEvent.Type> events = new ArrayList<>();
+
+    private MavenExecutionRequest request;
+
+    private MavenSession session;
+
+    @BeforeEach
+    void setUp() {
+        request = new DefaultMavenExecutionRequest();
+        request.setExecutionListener(new AbstractExecutionListener() {
+            @Override
+            public void sessionEnded(ExecutionEvent event) {
+                events.add(event.getType());
+            }
+        });
+        session = new MavenSession(
+                null, new DefaultRepositorySystemSession(), request, new DefaultMavenExecutionResult());
+    }
+
+    @Test
+    void cacheIsClosedWhenTheSessionEnds() {
+        ClassLoaderCache classLoaders = SessionCache.get(session, ClassLoaderCache.class, ClassLoaderCache::new);
+        SessionEndListener.install(session);
+        SessionEndListener.install(session);
+
+        request.getExecutionListener().sessionEnded(new SessionEndedEvent(session));
+
+        assertEquals(1, events.size());
+        assertNotSame(classLoaders, SessionCache.get(session, ClassLoaderCache.class, ClassLoaderCache::new));
+    }
+
+    @Test
+    void listenerIsInstalledOnce() {
+        SessionEndListener.install(session);
+        Object listener = request.getExecutionListener();
+
+        SessionEndListener.install(session);
+
+        assertInstanceOf(SessionEndListener.class, listener);
+        assertEquals(listener, request.getExecutionListener());
+    }
+
+    private static final class SessionEndedEvent implements ExecutionEvent {
+
+        private final MavenSession session;
+
+        SessionEndedEvent(MavenSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.SessionEnded;
+        }
+
+        @Override
+        public MavenSession getSession() {
+            return session;
+        }
+
+        @Override
+        public MavenProject getProject() {
+            return null;
+        }
+
+        @Override
+        public MojoExecution getMojoExecution() {
+            return null;
+        }
+
+        @Override
+        public Exception getException() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.Project;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for {@link SystemStreamDemux}.
+ */
+class SystemStreamDemuxTest {
+
+    private PrintStream savedOut;
+
+    private ByteArrayOutputStream console;
+
+    @BeforeEach
+    void setUp() {
+        savedOut = System.out;
+        console = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(console, true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(savedOut);
+    }
+
+    @Test
+    void outputOfTheExecutionIsLoggedByItsProject() throws Exception {
+        Project project = new Project();
+        List<String> messages = record(project);
+        PrintStream console = System.out;
+
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(project);
+        try {
+            System.out.println("first");
+            Thread thread = new Thread(() -> System.out.print("from a thread\n"));
+            thread.start();
+            thread.join();
+            System.out.print("incomplete");
+        } finally {
+            owner.close();
+        }
+        System.out.println("outside");
+
+        assertEquals(3, messages.size());
+        assertEquals("first", messages.get(0));
+        assertEquals("from a thread", messages.get(1));
+        assertEquals("incomplete", messages.get(2));
+        assertEquals("outside" + System.lineSeparator(), this.console.toString());
+        assertSame(console, System.out);
+    }
+
+    @Test
+    void concurrentExecutionsAreIsolated() throws Exception {
+        Project first = new Project();
+        Project second = new Project();
+        List<String> firstMessages = record(first);
+        List<String> secondMessages = record(second);
+        CountDownLatch bothOpen = new CountDownLatch(2);
+
+        Thread firstThread = new Thread(() -> print(first, "first", bothOpen));
+        Thread secondThread = new Thread(() -> print(second, "second", bothOpen));
+        firstThread.start();
+        secondThread.start();
+        firstThread.join();
+        secondThread.join();
+        System.out.println("neither");
+
+        assertEquals(Collections.nCopies(100, "first"), firstMessages);
+        assertEquals(Collections.nCopies(100, "second"), secondMessages);
+        assertEquals("neither" + System.lineSeparator(), console.toString());
+    }
+
+    @Test
+    void messagesOfTheLoggersAreNotRoutedBack() {
+        Project project = new Project();
+        List<String> messages = record(project);
+        DefaultLogger logger = new DefaultLogger() {
+            @Override
+            protected void printMessage(String message, PrintStream stream, int priority) {
+                SystemStreamDemux.direct(() -> System.out.println(message));
+            }
+        };
+        logger.setMessageOutputLevel(Project.MSG_INFO);
+        logger.setEmacsMode(true);
+        project.addBuildListener(logger);
+
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(project);
+        try {
+            project.log("logged");
+            System.out.println("printed");
+        } finally {
+            owner.close();
+        }
+
+        assertEquals("[logged, printed]", messages.toString());
+        assertEquals("logged" + System.lineSeparator() + "printed" + System.lineSeparator(), console.toString());
+    }
+
+    @Test
+    void detachedThreadsWriteToTheOriginalStream() throws Exception {
+        Project project = new Project();
+        List<String> messages = record(project);
+
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(project);
+        try {
+            Thread thread = new Thread(() -> {
+                SystemStreamDemux.detach();
+                System.out.println("detached");
+            });
+            thread.start();
+            thread.join();
+            // waiting on the task itself could run it in this thread
+            CountDownLatch printed = new CountDownLatch(1);
+            ForkJoinPool.commonPool().execute(() -> {
+                System.out.println("common pool");
+                printed.countDown();
+            });
+            printed.await();
+        } finally {
+            owner.close();
+        }
+
+        assertEquals(Collections.emptyList(), messages);
+        assertEquals(
+                "detached" + System.lineSeparator() + "common pool" + System.lineSeparator(), console.toString());
+    }
+
+    private static void print(Project project, String message, CountDownLatch bothOpen) {
+        SystemStreamDemux.Owner owner = SystemStreamDemux.open(project);
+        try {
+            bothOpen.countDown();
+            bothOpen.await();
+            for (int i = 0; i < 100; i++) {
+                System.out.println(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            owner.close();
+        }
+    }
+
+    private static List<String> record(Project project) {
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        project.addBuildListener(new DefaultLogger() {
+            @Override
+            public void messageLogged(BuildEvent event) {
+                messages.add(event.getMessage());
+            }
+        });
+        return messages;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Location;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for {@link TimingListener}.
+ */
+class TimingListenerTest {
+
+    @TempDir
+    private Path folder;
+
+    private Project project;
+
+    private final TimingListener timings = new TimingListener();
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.init();
+        project.addBuildListener(timings);
+    }
+
+    @Test
+    void tasksAreSortedByWallTime() {
+        Target target = addTarget("main");
+        addTask(target, "fast", 1, 0);
+        addTask(target, "slow", 2, 50);
+
+        project.executeTarget("main");
+
+        List<TimingListener.Timing> slowest = timings.getSlowestTasks(1);
+        assertEquals(1, slowest.size());
+        assertEquals("slow", slowest.get(0).getName());
+        assertEquals("main", slowest.get(0).getTarget());
+        assertEquals(2, slowest.get(0).getLine());
+        assertTrue(slowest.get(0).getWallTime() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void runsOfTheSameTaskAreAddedUp() {
+        Target target = addTarget("main");
+        Task task = addTask(target, "repeated", 1, 0);
+        target.addTask(task);
+
+        project.executeTarget("main");
+
+        assertEquals(2, timings.getSlowestTasks(10).get(0).getCount());
+    }
+
+    @Test
+    void allocatedMemoryIsMeasuredWhenTheJvmSupportsIt() {
+        assumeTrue(ManagementFactory.getThreadMXBean().getClass().getName().startsWith("com.sun.management"));
+        Target target = addTarget("main");
+        addTask(target, "allocating", 1, 0);
+
+        project.executeTarget("main");
+
+        assertTrue(timings.getSlowestTasks(1).get(0).getAllocatedBytes() >= 0);
+    }
+
+    @Test
+    void reportListsTargetsAndTasks() throws IOException {
+        Target target = addTarget("main");
+        addTask(target, "quoted\"name", 3, 0);
+        project.executeTarget("main");
+        File report = folder.resolve("antrun/timings-main.json").toFile();
+
+        timings.writeReport(report, "main");
+
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith(
+                "{\n  \"target\": \"main\",\n  \"targets\": [\n    {\"name\": \"main\", \"count\": 1"));
+        assertTrue(json.contains("{\"name\": \"quoted\\\"name\", \"target\": \"main\", \"line\": 3, \"count\": 1"));
+    }
+
+    private Target addTarget(String name) {
+        Target target = new Target();
+        target.setName(name);
+        target.setProject(project);
+        project.addTarget(target);
+        return target;
+    }
+
+    private Task addTask(Target target, String name, int line, long sleepMillis) {
+        Task task = new SleepingTask(sleepMillis);
+        task.setProject(project);
+        task.setTaskName(name);
+        task.setOwningTarget(target);
+        task.setLocation(new Location("build.xml", line, 1));
+        target.addTask(task);
+        return task;
+    }
+
+    /**
+     * Ant calls the execute method by reflection, so the task class must be public.
+     */
+    public static class SleepingTask extends Task {
+
+        private final long millis;
+
+        SleepingTask(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void execute() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new BuildException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.model.FileSet;
+import org.codehaus.plexus.configuration.DefaultPlexusConfiguration;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.apache.maven.plugins.antrun.TestFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for {@link UpToDateCheck}.
+ */
+class UpToDateCheckTest {
+
+    @TempDir
+    private File tempDir;
+
+    private List<FileSet> inputs;
+
+    private List<FileSet> outputs;
+
+    private final Properties projectProperties = new Properties();
+
+    private final Properties userProperties = new Properties();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inputs = Collections.singletonList(fileSet("src"));
+        outputs = Collections.singletonList(fileSet("target/generated"));
+        write(new File(tempDir, "src/input.txt"), "input");
+        projectProperties.setProperty("greeting", "hello");
+        run();
+    }
+
+    @Test
+    void unchangedTargetIsUpToDate() throws IOException {
+        UpToDateCheck check = newCheck();
+
+        assertNull(check.getOutOfDateReason(outputs));
+        assertEquals(Collections.singletonMap("generated", "true"), check.getExportedProperties());
+    }
+
+    @Test
+    void changedInputIsOutOfDate() throws IOException {
+        write(new File(tempDir, "src/input.txt"), "changed");
+
+        assertNotNull(newCheck().getOutOfDateReason(outputs));
+    }
+
+    @Test
+    void deletedOutputIsOutOfDate() throws IOException {
+        Files.delete(new File(tempDir, "target/generated/output.txt").toPath());
+
+        assertNotNull(newCheck().getOutOfDateReason(outputs));
+    }
+
+    @Test
+    void changedUserPropertyIsOutOfDate() throws IOException {
+        userProperties.setProperty("greeting", "bonjour");
+
+        assertNotNull(newCheck().getOutOfDateReason(outputs));
+    }
+
+    @Test
+    void newProjectPropertyIsOutOfDate() throws IOException {
+        projectProperties.setProperty("name", "world");
+
+        assertNotNull(newCheck().getOutOfDateReason(outputs));
+    }
+
+    /**
+     * Records an execution of the target writing its output.
+     */
+    private void run() throws IOException {
+        UpToDateCheck check = newCheck();
+        write(new File(tempDir, "target/generated/output.txt"), "output");
+        check.save(outputs, Collections.singletonMap("generated", "true"));
+    }
+
+    private UpToDateCheck newCheck() throws IOException {
+        UpToDateCheck check = new UpToDateCheck(tempDir, new File(tempDir, "target/antrun/fingerprint.properties"));
+        PlexusConfiguration target = new DefaultPlexusConfiguration("target");
+        target.addChild("echo", "${greeting}");
+        check.update(target);
+        check.updateProperties(projectProperties, userProperties);
+        check.updateInputs(inputs);
+        return check;
+    }
+
+    private static FileSet fileSet(String directory) {
+        FileSet fileSet = new FileSet();
+        fileSet.setDirectory(directory);
+        return fileSet;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.antrun;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.tools.ant.Location;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link AntFlightRecorder}.
+ */
+class AntFlightRecorderTest {
+
+    @TempDir
+    private Path folder;
+
+    @Test
+    void phasesTargetsAndTasksAreRecorded() throws IOException {
+        AntFlightRecorder recorder = AntFlightRecorder.get();
+        assertTrue(recorder instanceof JfrAntFlightRecorder);
+        Project project = new Project();
+        project.init();
+        Target target = new Target();
+        target.setName("main");
+        target.setProject(project);
+        target.setLocation(new Location("build.xml", 2, 1));
+        project.addTarget(target);
+        Echo echo = new Echo();
+        echo.setProject(project);
+        echo.setTaskName("echo");
+        echo.setOwningTarget(target);
+        echo.setLocation(new Location("build.xml", 3, 1));
+        target.addTask(echo);
+
+        Path file = folder.resolve("antrun.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.maven.antrun.Phase");
+            recording.enable("org.apache.maven.antrun.Target");
+            recording.enable("org.apache.maven.antrun.Task");
+            recording.start();
+            project.addBuildListener(recorder.newListener("module"));
+            AntFlightRecorder.Phase phase = recorder.begin("module", "execution");
+            try {
+                project.executeTarget("main");
+            } finally {
+                phase.close();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = new ArrayList<>(RecordingFile.readAllEvents(file));
+        events.sort((a, b) -> a.getEventType().getName().compareTo(b.getEventType().getName()));
+        assertEquals(3, events.size());
+        RecordedEvent phase = events.get(0);
+        assertEquals("org.apache.maven.antrun.Phase", phase.getEventType().getName());
+        assertEquals("module", phase.getString("module"));
+        assertEquals("execution", phase.getString("phase"));
+        RecordedEvent targetEvent = events.get(1);
+        assertEquals("main", targetEvent.getString("target"));
+        assertEquals("build.xml:2", targetEvent.getString("location"));
+        RecordedEvent task = events.get(2);
+        assertEquals("module", task.getString("module"));
+        assertEquals("main", task.getString("target"));
+        assertEquals("echo", task.getString("task"));
+        assertEquals("build.xml:3", task.getString("location"));
+        assertTrue(task.getDuration().compareTo(targetEvent.getDuration()) <= 0);
+    }
+
+    @Test
+    void noListenerIsAddedWithoutRecording() {
+        AntFlightRecorder recorder = AntFlightRecorder.get();
+        assertNull(recorder.newListener("module"));
+
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.maven.antrun.Phase");
+            recording.disable("org.apache.maven.antrun.Target");
+            recording.disable("org.apache.maven.antrun.Task");
+            recording.start();
+            assertNull(recorder.newListener("module"));
+        }
+
+        // the phases emitting no event are all the same
+        assertSame(recorder.begin("module", "execution"), recorder.begin("module", "init project"));
+        assertNull(new AntFlightRecorder().newListener("module"));
+    }
+}